@@ -0,0 +1,115 @@
+package com.thesoulless.secretspecplugin.api;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rewriting a launch command into 'secretspec run ... -- command' for realistic command lines.
+ * {@link #buildOnly()} is the baseline for creating the command line itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandLinePatchingBenchmark {
+
+    /**
+     * go: compiled Go binary with test flags, java: JVM with a long classpath, long: 256 arbitrary arguments
+     */
+    @Param({"go", "java", "long"})
+    public String commandShape;
+
+    @Param({"true", "false"})
+    public boolean withProfileAndProvider;
+
+    private String exePath;
+    private List<String> parameters;
+    private SecretSpecSettingsSnapshot settings;
+    private File workingDirectory;
+
+    @Setup
+    public void setUp() {
+        parameters = new ArrayList<>();
+        switch (commandShape) {
+            case "go":
+                exePath = "/tmp/GoLand/___go_build_github_com_example_service_cmd_api";
+                parameters.add("-config=/home/dev/service/config/local.yaml");
+                parameters.add("-test.v");
+                parameters.add("-test.paniconexit0");
+                parameters.add("-test.run");
+                parameters.add("^TestIntegration$");
+                break;
+            case "java":
+                exePath = "/usr/lib/jvm/java-17/bin/java";
+                parameters.add("-Xmx2g");
+                parameters.add("-Dfile.encoding=UTF-8");
+                parameters.add("-javaagent:/opt/idea/lib/idea_rt.jar=41231:/opt/idea/bin");
+                StringBuilder classpath = new StringBuilder();
+                for (int i = 0; i < 120; i++) {
+                    classpath.append(i > 0 ? File.pathSeparator : "")
+                            .append("/home/dev/.m2/repository/org/example/lib").append(i).append("/1.0/lib").append(i).append("-1.0.jar");
+                }
+                parameters.add("-classpath");
+                parameters.add(classpath.toString());
+                parameters.add("com.example.Main");
+                parameters.add("--spring.profiles.active=local");
+                break;
+            default:
+                exePath = "/usr/local/bin/tool";
+                for (int i = 0; i < 256; i++) {
+                    parameters.add("--option-" + i + "=value with spaces " + i);
+                }
+        }
+        settings = new SecretSpecRunSettings(true,
+                withProfileAndProvider ? "development" : "",
+                withProfileAndProvider ? "onepassword://Engineering" : "").snapshot();
+        workingDirectory = new File("/home/dev/service");
+    }
+
+    private GeneralCommandLine newCommandLine() {
+        GeneralCommandLine cmdLine = new GeneralCommandLine(exePath);
+        cmdLine.addParameters(parameters);
+        cmdLine.setWorkDirectory(workingDirectory);
+        return cmdLine;
+    }
+
+    @Benchmark
+    public GeneralCommandLine buildOnly() {
+        return newCommandLine();
+    }
+
+    /**
+     * The wrapper rewrite done by the shared launch patcher when no secrets are at hand
+     */
+    @Benchmark
+    public GeneralCommandLine wrap() {
+        GeneralCommandLine cmdLine = newCommandLine();
+        SecretSpecLaunchPatcher.wrapCommandLine(cmdLine, settings);
+        return cmdLine;
+    }
+
+    /**
+     * The Go run path: wrap, pin the working directory and render the final command for the log
+     */
+    @Benchmark
+    public String wrapGoRunPath() {
+        GeneralCommandLine cmdLine = newCommandLine();
+        SecretSpecLaunchPatcher.wrapCommandLine(cmdLine, settings);
+        cmdLine.setWorkDirectory(workingDirectory);
+        return cmdLine.getCommandLineString();
+    }
+}
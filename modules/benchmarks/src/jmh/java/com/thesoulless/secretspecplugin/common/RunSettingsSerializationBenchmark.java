@@ -0,0 +1,72 @@
+package com.thesoulless.secretspecplugin.common;
+
+import org.jdom.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of persisting and restoring SecretSpec run settings and of building the command prefix.
+ * Settings are read for every run configuration when a project opens and written on every save.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RunSettingsSerializationBenchmark {
+
+    private SecretSpecRunSettings settings;
+    private Element serialized;
+
+    @Setup
+    public void setUp() {
+        settings = new SecretSpecRunSettings(true, " development ", "onepassword://Engineering");
+        settings.setCacheSecrets(true);
+        settings.setStaleWhileRevalidate(true);
+        settings.setMaxStaleMinutes(30);
+        serialized = new Element("secretspec-settings");
+        settings.writeExternal(serialized);
+    }
+
+    @Benchmark
+    public Element writeExternal() {
+        Element element = new Element("secretspec-settings");
+        settings.writeExternal(element);
+        return element;
+    }
+
+    @Benchmark
+    public SecretSpecRunSettings readExternal() {
+        SecretSpecRunSettings read = new SecretSpecRunSettings();
+        read.readExternal(serialized);
+        return read;
+    }
+
+    @Benchmark
+    public SecretSpecRunSettings roundTrip() {
+        Element element = new Element("secretspec-settings");
+        settings.writeExternal(element);
+        SecretSpecRunSettings read = new SecretSpecRunSettings();
+        read.readExternal(element);
+        return read;
+    }
+
+    @Benchmark
+    public String buildCommandPrefix() {
+        return settings.buildCommandPrefix();
+    }
+
+    /**
+     * What a launch does first: take one consistent snapshot and read the pre-trimmed values
+     */
+    @Benchmark
+    public String snapshotRead() {
+        SecretSpecSettingsSnapshot snapshot = settings.snapshot();
+        return snapshot.hasProfile() ? snapshot.getProfile() : snapshot.getProvider();
+    }
+}
@@ -0,0 +1,93 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Console masking throughput on a 16 MB log delivered in console-sized chunks.
+ * One in 200 lines leaks a secret. {@link #naiveReplace} is the per-value String.replace approach for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SecretMaskingBenchmark {
+
+    private static final int LOG_SIZE = 16 * 1024 * 1024;
+
+    @Param({"10", "100", "1000"})
+    public int secretCount;
+
+    @Param({"1024", "65536"})
+    public int chunkSize;
+
+    private SecretMaskingAutomaton automaton;
+    private List<String> secrets;
+    private String[] chunks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        secrets = new ArrayList<>(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            secrets.add("sk_live_" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        }
+        automaton = SecretMaskingAutomaton.build(secrets);
+
+        StringBuilder log = new StringBuilder(LOG_SIZE + 256);
+        for (int line = 0; log.length() < LOG_SIZE; line++) {
+            log.append("2024-05-01T12:00:00.000Z INFO  [http-nio-8080-exec-").append(line % 16)
+                    .append("] c.e.api.RequestLogger - GET /api/v1/orders/").append(random.nextInt(1_000_000))
+                    .append(" status=200 duration=").append(random.nextInt(500)).append("ms");
+            if (line % 200 == 0) {
+                log.append(" token=").append(secrets.get(random.nextInt(secretCount)));
+            }
+            log.append('\n');
+        }
+
+        int count = (log.length() + chunkSize - 1) / chunkSize;
+        chunks = new String[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = log.substring(i * chunkSize, Math.min(log.length(), (i + 1) * chunkSize));
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        SecretMaskingStream stream = new SecretMaskingStream(automaton);
+        for (String chunk : chunks) {
+            blackhole.consume(stream.process(chunk));
+        }
+        blackhole.consume(stream.flush());
+    }
+
+    /**
+     * N String.replace calls per chunk; misses values split across chunks
+     */
+    @Benchmark
+    public void naiveReplace(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            String masked = chunk;
+            for (String secret : secrets) {
+                masked = masked.replace(secret, SecretMaskingStream.MASK);
+            }
+            blackhole.consume(masked);
+        }
+    }
+
+    @Benchmark
+    public SecretMaskingAutomaton build() {
+        return SecretMaskingAutomaton.build(secrets);
+    }
+}
@@ -0,0 +1,124 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.thesoulless.secretspecplugin.execution.SecretSpecEnvironmentOverlay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a secretspec environment dump into secrets and merging them into a launch environment
+ * for different numbers of secrets on top of a typical parent environment
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnvironmentMergeBenchmark {
+
+    private static final int PARENT_ENVIRONMENT_SIZE = 80;
+
+    @Param({"0", "10", "100", "1000"})
+    public int secretCount;
+
+    private Map<String, String> parentEnvironment;
+    private Map<String, String> configurationEnvironment;
+    private Map<String, String> secrets;
+    private String environmentDump;
+    private GeneralCommandLine injectedCommandLine;
+
+    @Setup
+    public void setUp() {
+        parentEnvironment = new LinkedHashMap<>();
+        for (int i = 0; i < PARENT_ENVIRONMENT_SIZE; i++) {
+            parentEnvironment.put("PARENT_VAR_" + i, "/usr/local/share/value/" + i);
+        }
+        configurationEnvironment = new LinkedHashMap<>();
+        configurationEnvironment.put("GOFLAGS", "-mod=mod");
+        configurationEnvironment.put("APP_ENV", "local");
+
+        secrets = new LinkedHashMap<>();
+        for (int i = 0; i < secretCount; i++) {
+            secrets.put("SECRET_" + i, "s3cr3t-value-" + i + "-0123456789abcdef0123456789abcdef");
+        }
+
+        StringBuilder dump = new StringBuilder();
+        parentEnvironment.forEach((name, value) -> dump.append(name).append('=').append(value).append('\0'));
+        secrets.forEach((name, value) -> dump.append(name).append('=').append(value).append('\0'));
+        environmentDump = dump.toString();
+
+        injectedCommandLine = newCommandLine();
+        injectedCommandLine.getEnvironment().putAll(secrets);
+    }
+
+    private GeneralCommandLine newCommandLine() {
+        GeneralCommandLine cmdLine = new GeneralCommandLine("/tmp/app");
+        cmdLine.getEnvironment().putAll(configurationEnvironment);
+        return cmdLine;
+    }
+
+    /**
+     * Diff the 'env -0' output of 'secretspec run' against the parent environment
+     */
+    @Benchmark
+    public Map<String, String> extractSecrets() {
+        return SecretSpecResolver.extractSecrets(environmentDump, parentEnvironment);
+    }
+
+    /**
+     * Inject resolved secrets into a launch command that already carries configuration variables
+     */
+    @Benchmark
+    public Map<String, String> injectIntoCommandLine() {
+        GeneralCommandLine cmdLine = newCommandLine();
+        SecretSpecEnvironmentOverlay.inject(cmdLine, secrets);
+        return cmdLine.getEnvironment();
+    }
+
+    /**
+     * The same launch command with the secrets copied in by a plain putAll, the baseline for inject
+     */
+    @Benchmark
+    public Map<String, String> putAllIntoCommandLine() {
+        GeneralCommandLine cmdLine = newCommandLine();
+        cmdLine.getEnvironment().putAll(secrets);
+        return cmdLine.getEnvironment();
+    }
+
+    /**
+     * Inject into a command line that already holds the same secrets, e.g. one patched again for a rerun
+     */
+    @Benchmark
+    public Map<String, String> reinjectIntoCommandLine() {
+        SecretSpecEnvironmentOverlay.inject(injectedCommandLine, secrets);
+        return injectedCommandLine.getEnvironment();
+    }
+
+    /**
+     * Plain putAll into a command line that already holds the same secrets
+     */
+    @Benchmark
+    public Map<String, String> putAllAgainIntoCommandLine() {
+        injectedCommandLine.getEnvironment().putAll(secrets);
+        return injectedCommandLine.getEnvironment();
+    }
+
+    /**
+     * Build the effective child environment the way the process launcher does: parent, then command line variables
+     */
+    @Benchmark
+    public Map<String, String> mergeWithParentEnvironment() {
+        Map<String, String> effective = new LinkedHashMap<>(parentEnvironment);
+        effective.putAll(configurationEnvironment);
+        effective.putAll(secrets);
+        return effective;
+    }
+}
@@ -0,0 +1,179 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import com.thesoulless.secretspecplugin.metrics.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless end-to-end launch benchmark against a fake secretspec executable.
+ * Every launch patches a GeneralCommandLine the way the plugin does, starts the process and waits for it,
+ * so the numbers include process creation and the simulated provider round-trip.
+ * <p>
+ * Modes:
+ * <ul>
+ *   <li>baseline - the command alone, without SecretSpec</li>
+ *   <li>wrapper - 'secretspec run -- command', the default plugin behaviour</li>
+ *   <li>direct - resolve with 'secretspec run -- env -0' and inject the secrets into the command</li>
+ *   <li>cache - like direct, but resolved once and served from {@link SecretSpecSecretCache}</li>
+ * </ul>
+ * Options: --launches N, --warmup N, --latency-ms N, --secrets N, --fail-percent N, --modes a,b,c, --command cmd
+ */
+public final class LaunchBenchmarkHarness {
+
+    private static final String FAKE_SCRIPT = "fake-secretspec.sh";
+    private static final List<String> ALL_MODES = List.of("baseline", "wrapper", "direct", "cache");
+
+    private final int launches;
+    private final int warmup;
+    private final List<String> modes;
+    private final String command;
+    private final String fakeSecretSpec;
+    private final SecretSpecSettingsSnapshot settings = new SecretSpecRunSettings(true, "default", "fake").snapshot();
+    private final SecretSpecCacheKey key;
+    private final SecretSpecSecretCache cache = new SecretSpecSecretCache();
+
+    private LaunchBenchmarkHarness(int launches, int warmup, @NotNull List<String> modes, @NotNull String command,
+                                   @NotNull String fakeSecretSpec, @NotNull String workingDirectory) {
+        this.launches = launches;
+        this.warmup = warmup;
+        this.modes = modes;
+        this.command = command;
+        this.fakeSecretSpec = fakeSecretSpec;
+        this.key = SecretSpecCacheKey.create(workingDirectory, settings);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int launches = 200;
+        int warmup = 20;
+        int latencyMs = 100;
+        int secrets = 20;
+        int failPercent = 0;
+        List<String> modes = ALL_MODES;
+        String command = "true";
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--launches": launches = Integer.parseInt(value); i++; break;
+                case "--warmup": warmup = Integer.parseInt(value); i++; break;
+                case "--latency-ms": latencyMs = Integer.parseInt(value); i++; break;
+                case "--secrets": secrets = Integer.parseInt(value); i++; break;
+                case "--fail-percent": failPercent = Integer.parseInt(value); i++; break;
+                case "--modes": modes = Arrays.asList(value.split(",")); i++; break;
+                case "--command": command = value; i++; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path directory = Files.createTempDirectory("secretspec-bench");
+        Path fake = writeFakeSecretSpec(directory, latencyMs, secrets, failPercent);
+        System.out.printf("Fake secretspec: latency %d ms, %d secrets, %d%% failures; %d launches per mode (%d warm-up)%n",
+                latencyMs, secrets, failPercent, launches, warmup);
+
+        LaunchBenchmarkHarness harness = new LaunchBenchmarkHarness(launches, warmup, modes, command,
+                fake.toString(), directory.toString());
+        harness.run();
+    }
+
+    private static @NotNull Path writeFakeSecretSpec(@NotNull Path directory, int latencyMs, int secrets, int failPercent)
+            throws IOException {
+        String script;
+        try (InputStream in = LaunchBenchmarkHarness.class.getResourceAsStream(FAKE_SCRIPT)) {
+            if (in == null) {
+                throw new IOException(FAKE_SCRIPT + " not found on the classpath");
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        script = script.replace("@LATENCY_MS@", String.valueOf(latencyMs))
+                .replace("@SECRETS@", String.valueOf(secrets))
+                .replace("@FAIL_PERCENT@", String.valueOf(failPercent));
+        Path fake = directory.resolve("secretspec");
+        Files.writeString(fake, script);
+        if (!fake.toFile().setExecutable(true)) {
+            throw new IOException("Cannot make " + fake + " executable");
+        }
+        return fake;
+    }
+
+    private void run() {
+        System.out.printf("%-10s %8s %8s %10s %10s %10s %10s %10s%n",
+                "mode", "launches", "failed", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)", "mean (ms)");
+        for (String mode : modes) {
+            cache.clear();
+            for (int i = 0; i < warmup; i++) {
+                launch(mode);
+            }
+            LatencyHistogram histogram = new LatencyHistogram();
+            int failed = 0;
+            for (int i = 0; i < launches; i++) {
+                long start = System.nanoTime();
+                boolean succeeded = launch(mode);
+                histogram.recordNanos(System.nanoTime() - start);
+                if (!succeeded) {
+                    failed++;
+                }
+            }
+            System.out.printf("%-10s %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", mode, launches, failed,
+                    histogram.getPercentileMicros(50) / 1000.0, histogram.getPercentileMicros(90) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0,
+                    histogram.getMeanMicros() / 1000.0);
+        }
+    }
+
+    /**
+     * Patch and start one launch, returning whether the launched command exited successfully
+     */
+    private boolean launch(@NotNull String mode) {
+        GeneralCommandLine cmdLine = new GeneralCommandLine(command);
+        cmdLine.setWorkDirectory(key.getWorkingDirectory());
+        try {
+            switch (mode) {
+                case "baseline":
+                    break;
+                case "wrapper":
+                    SecretSpecLaunchPatcher.wrapCommandLine(cmdLine, settings);
+                    cmdLine.setExePath(fakeSecretSpec);
+                    break;
+                case "direct":
+                    cmdLine.getEnvironment().putAll(SecretSpecResolver.runSecretSpec(fakeSecretSpec, key));
+                    break;
+                case "cache":
+                    Map<String, String> secrets = cache.get(key);
+                    if (secrets == null) {
+                        secrets = SecretSpecResolver.runSecretSpec(fakeSecretSpec, key);
+                        cache.put(key, secrets);
+                    }
+                    cmdLine.getEnvironment().putAll(secrets);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown mode " + mode + ", expected one of " + ALL_MODES);
+            }
+            Process process = cmdLine.createProcess();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (ExecutionException | IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Stand-in for the secretspec CLI used by LaunchBenchmarkHarness.
+# The harness replaces the @...@ placeholders before writing the script to a temp directory:
+#   @LATENCY_MS@    simulated provider latency before the command runs
+#   @SECRETS@       number of SECRET_<n> variables injected into the command's environment
+#   @FAIL_PERCENT@  chance in percent that the provider fails and nothing is run
+
+if [ "$1" = "--version" ]; then
+  echo "secretspec 0.0.0-fake"
+  exit 0
+fi
+if [ "$1" != "run" ]; then
+  echo "fake secretspec only supports 'run'" >&2
+  exit 2
+fi
+shift
+
+while [ $# -gt 0 ] && [ "$1" != "--" ]; do
+  case "$1" in
+    --profile|--provider) shift 2 ;;
+    *) echo "Error: unknown option $1" >&2; exit 2 ;;
+  esac
+done
+shift # --
+
+latency=@LATENCY_MS@
+if [ "$latency" -gt 0 ]; then
+  sleep "$(printf '%d.%03d' $((latency / 1000)) $((latency % 1000)))"
+fi
+
+if [ $((RANDOM % 100)) -lt @FAIL_PERCENT@ ]; then
+  echo "Error: provider 'fake' failed to resolve secrets" >&2
+  exit 1
+fi
+
+for ((i = 0; i < @SECRETS@; i++)); do
+  export "SECRET_$i=fake-secret-value-$i-0123456789abcdef"
+done
+exec "$@"
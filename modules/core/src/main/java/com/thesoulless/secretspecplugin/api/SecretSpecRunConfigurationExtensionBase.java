@@ -5,12 +5,14 @@ import com.intellij.execution.configuration.RunConfigurationExtensionBase;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.configurations.RunConfigurationBase;
 import com.intellij.execution.configurations.RunnerSettings;
-import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.InvalidDataException;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.WriteExternalException;
 import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -22,7 +24,6 @@ import org.jetbrains.annotations.Nullable;
 public abstract class SecretSpecRunConfigurationExtensionBase<T extends RunConfigurationBase<?>> 
         extends RunConfigurationExtensionBase<T> {
     
-    private static final Logger LOG = Logger.getInstance(SecretSpecRunConfigurationExtensionBase.class);
     protected static final Key<SecretSpecRunSettings> SETTINGS_KEY = Key.create("secretspec.settings");
     private static final String SETTINGS_TAG = "secretspec-settings";
     
@@ -34,22 +35,13 @@ public abstract class SecretSpecRunConfigurationExtensionBase<T extends RunConfi
     @Override
     protected void readExternal(@NotNull T runConfiguration, @NotNull Element element)
             throws InvalidDataException {
-        Element settingsElement = element.getChild(SETTINGS_TAG);
-        if (settingsElement != null) {
-            SecretSpecRunSettings settings = getOrCreateSettings(runConfiguration);
-            settings.readExternal(settingsElement);
-        }
+        readSettings(runConfiguration, element);
     }
     
     @Override
     protected void writeExternal(@NotNull T runConfiguration, @NotNull Element element)
             throws WriteExternalException {
-        SecretSpecRunSettings settings = getSettings(runConfiguration);
-        if (settings != null) {
-            Element settingsElement = new Element(SETTINGS_TAG);
-            settings.writeExternal(settingsElement);
-            element.addContent(settingsElement);
-        }
+        writeSettings(runConfiguration, element);
     }
     
     @Override
@@ -57,38 +49,26 @@ public abstract class SecretSpecRunConfigurationExtensionBase<T extends RunConfi
         return "secretspec-extension";
     }
     
+    @Override
+    protected <P extends T> @Nullable SettingsEditor<P> createEditor(@NotNull P configuration) {
+        return new SecretSpecSettingsEditor<>(configuration.getProject());
+    }
+    
     /**
      * Modify the command line to add SecretSpec prefix
      */
     protected void modifyCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecRunSettings settings) {
-        // Store original command
-        String originalExePath = cmdLine.getExePath();
-        var originalParameters = cmdLine.getParametersList().getList().toArray(new String[0]);
-        
-        // Replace with SecretSpec command
-        cmdLine.setExePath("secretspec");
-        cmdLine.getParametersList().clearAll();
-        
-        // Add SecretSpec parameters
-        cmdLine.addParameter("run");
-        
-        if (settings.hasProfile()) {
-            cmdLine.addParameter("--profile");
-            cmdLine.addParameter(settings.getProfile());
-        }
-        
-        if (settings.hasProvider()) {
-            cmdLine.addParameter("--provider");
-            cmdLine.addParameter(settings.getProvider());
-        }
-        
-        cmdLine.addParameter("--");
-        
-        // Add original command
-        cmdLine.addParameter(originalExePath);
-        cmdLine.addParameters(originalParameters);
-        
-        LOG.info("Modified command line with SecretSpec: " + cmdLine.getCommandLineString());
+        modifyCommandLine(cmdLine, settings, null);
+    }
+    
+    /**
+     * Modify the command line to add SecretSpec prefix, injecting secrets directly when they are
+     * cached or the project's agent can resolve them
+     */
+    protected void modifyCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecRunSettings settings, @Nullable Project project) {
+        String workingDirectory = cmdLine.getWorkDirectory() != null ?
+            cmdLine.getWorkDirectory().getAbsolutePath() : System.getProperty("user.dir");
+        SecretSpecLaunchPatcher.patch(cmdLine, workingDirectory, settings.snapshot(), project);
     }
     
     /**
@@ -100,15 +80,65 @@ public abstract class SecretSpecRunConfigurationExtensionBase<T extends RunConfi
     }
     
     /**
-     * Base implementation - subclasses should implement their own command modification
+     * Patch the command line through the shared launch patcher when SecretSpec is enabled for the configuration
      */
     @Override
     protected void patchCommandLine(@NotNull T configuration,
                                    @Nullable RunnerSettings runnerSettings,
                                    @NotNull GeneralCommandLine cmdLine,
                                    @NotNull String runnerId) throws ExecutionException {
-        // Default implementation does nothing
-        // Platform-specific extensions should override this method
+        patchCommandLine(configuration, cmdLine);
+    }
+    
+    /**
+     * Patch a command line of any run configuration that has SecretSpec enabled, for adapters that
+     * can't extend this class because their platform has its own extension base class
+     *
+     * @return how the secrets reached the launch, or null if SecretSpec is not enabled
+     */
+    public static @Nullable SecretSpecLaunchPatcher.Outcome patchCommandLine(@NotNull RunConfigurationBase<?> configuration,
+                                                                           @NotNull GeneralCommandLine cmdLine) {
+        SecretSpecRunSettings runSettings = getSettings(configuration);
+        // Read one consistent snapshot, the settings editor may apply new settings while we launch
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
+        if (settings == null || !settings.isEnabled()) {
+            return null;
+        }
+        return SecretSpecLaunchPatcher.patch(cmdLine, getWorkingDirectory(configuration, cmdLine), settings, configuration.getProject());
+    }
+    
+    /**
+     * Working directory the command line will run in, falling back to the configuration's when the
+     * command line doesn't set one
+     */
+    public static @NotNull String getWorkingDirectory(@NotNull RunConfigurationBase<?> configuration, @NotNull GeneralCommandLine cmdLine) {
+        if (cmdLine.getWorkDirectory() != null) {
+            return cmdLine.getWorkDirectory().getAbsolutePath();
+        }
+        String workingDirectory = SecretSpecWorkingDirectoryProvider.find(configuration);
+        return workingDirectory != null ? workingDirectory : System.getProperty("user.dir");
+    }
+    
+    /**
+     * Read the SecretSpec settings of a run configuration from its serialized extension element
+     */
+    public static void readSettings(@NotNull RunConfigurationBase<?> configuration, @NotNull Element element) {
+        Element settingsElement = element.getChild(SETTINGS_TAG);
+        if (settingsElement != null) {
+            getOrCreateSettings(configuration).readExternal(settingsElement);
+        }
+    }
+    
+    /**
+     * Write the SecretSpec settings of a run configuration, if it has any
+     */
+    public static void writeSettings(@NotNull RunConfigurationBase<?> configuration, @NotNull Element element) {
+        SecretSpecRunSettings settings = getSettings(configuration);
+        if (settings != null) {
+            Element settingsElement = new Element(SETTINGS_TAG);
+            settings.writeExternal(settingsElement);
+            element.addContent(settingsElement);
+        }
     }
     
     /**
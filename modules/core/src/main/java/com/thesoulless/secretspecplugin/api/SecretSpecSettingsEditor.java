@@ -1,9 +1,9 @@
-package com.thesoulless.secretspecplugin.go;
+package com.thesoulless.secretspecplugin.api;
 
 import com.intellij.execution.configurations.RunConfigurationBase;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.options.SettingsEditor;
-import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.intellij.openapi.project.Project;
 import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
 import com.thesoulless.secretspecplugin.common.SecretSpecSettingsPanel;
 import org.jetbrains.annotations.NotNull;
@@ -11,19 +11,20 @@ import org.jetbrains.annotations.NotNull;
 import javax.swing.*;
 
 /**
- * Settings editor for SecretSpec tab in Go run configurations
+ * Settings editor for the SecretSpec tab of run configurations on every platform
  */
-public class SecretSpecGoSettingsEditor<T extends RunConfigurationBase<?>> extends SettingsEditor<T> {
+public class SecretSpecSettingsEditor<T extends RunConfigurationBase<?>> extends SettingsEditor<T> {
     
     private final SecretSpecSettingsPanel panel;
     
-    public SecretSpecGoSettingsEditor() {
-        this.panel = new SecretSpecSettingsPanel();
+    public SecretSpecSettingsEditor(@NotNull Project project) {
+        this.panel = new SecretSpecSettingsPanel(project, this);
     }
     
     @Override
     protected void resetEditorFrom(@NotNull T configuration) {
         SecretSpecRunSettings settings = SecretSpecRunConfigurationExtensionBase.getOrCreateSettings(configuration);
+        panel.setWorkingDirectory(SecretSpecWorkingDirectoryProvider.find(configuration));
         panel.resetFrom(settings);
     }
     
@@ -0,0 +1,52 @@
+package com.thesoulless.secretspecplugin.api;
+
+import com.intellij.execution.CommonProgramRunConfigurationParameters;
+import com.intellij.execution.configurations.ModuleBasedConfiguration;
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.util.ProgramParametersUtil;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Platform-specific lookup of the working directory of a run configuration, used to find
+ * the secretspec.toml and key cached secrets before the command line exists
+ */
+public interface SecretSpecWorkingDirectoryProvider {
+    
+    ExtensionPointName<SecretSpecWorkingDirectoryProvider> EP_NAME =
+            ExtensionPointName.create("com.thesoulless.secretspecplugin.workingDirectoryProvider");
+    
+    /**
+     * Working directory of the configuration, or null if this provider doesn't handle it
+     */
+    @Nullable String getWorkingDirectory(@NotNull RunConfiguration configuration);
+    
+    /**
+     * Ask the registered providers, then common program parameters, then fall back to the project directory.
+     * Macros such as $MODULE_WORKING_DIR$ are expanded the way the launch expands them, so cache keys built
+     * before the launch match the ones built for it.
+     */
+    static @Nullable String find(@NotNull RunConfiguration configuration) {
+        for (SecretSpecWorkingDirectoryProvider provider : EP_NAME.getExtensionList()) {
+            String workingDirectory = provider.getWorkingDirectory(configuration);
+            if (!StringUtil.isEmptyOrSpaces(workingDirectory)) {
+                return workingDirectory;
+            }
+        }
+        if (configuration instanceof CommonProgramRunConfigurationParameters) {
+            CommonProgramRunConfigurationParameters parameters = (CommonProgramRunConfigurationParameters) configuration;
+            if (!StringUtil.isEmptyOrSpaces(parameters.getWorkingDirectory())) {
+                Module module = configuration instanceof ModuleBasedConfiguration ?
+                        ((ModuleBasedConfiguration<?, ?>) configuration).getConfigurationModule().getModule() : null;
+                String workingDirectory = ProgramParametersUtil.getWorkingDir(parameters, configuration.getProject(), module);
+                if (!StringUtil.isEmptyOrSpaces(workingDirectory)) {
+                    return workingDirectory;
+                }
+            }
+        }
+        return configuration.getProject().getBasePath();
+    }
+}
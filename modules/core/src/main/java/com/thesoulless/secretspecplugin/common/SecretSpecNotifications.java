@@ -0,0 +1,28 @@
+package com.thesoulless.secretspecplugin.common;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Balloon notifications shown by SecretSpec - never include secret values in them
+ */
+public final class SecretSpecNotifications {
+    
+    public static final String GROUP_ID = "SecretSpec";
+    
+    private SecretSpecNotifications() {
+    }
+    
+    public static @NotNull Notification create(@NotNull String title, @NotNull String content, @NotNull NotificationType type) {
+        return NotificationGroupManager.getInstance().getNotificationGroup(GROUP_ID)
+                .createNotification(title, content, type);
+    }
+    
+    public static void notify(@Nullable Project project, @NotNull String title, @NotNull String content, @NotNull NotificationType type) {
+        create(title, content, type).notify(project);
+    }
+}
@@ -4,105 +4,212 @@ import com.intellij.openapi.util.JDOMExternalizerUtil;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
 /**
- * Settings for SecretSpec run configuration - shared across all platforms
+ * Settings for SecretSpec run configuration - shared across all platforms.
+ * The values live in an immutable {@link SecretSpecSettingsSnapshot} published through an atomic reference,
+ * so launches read one consistent snapshot while the settings editor writes new ones.
  */
 public class SecretSpecRunSettings {
     
-    private boolean enabled = false;
-    private String profile = "";
-    private String provider = "";
+    public static final int DEFAULT_MAX_STALE_MINUTES = 60;
+    public static final int MAX_STALE_MINUTES_LIMIT = 24 * 60;
+    public static final int DEFAULT_RESOLVE_TIMEOUT_SECONDS = 30;
+    // A secretspec process is stopped after 60 s, waiting longer for it would not help
+    public static final int MAX_RESOLVE_TIMEOUT_SECONDS = 60;
     
     private static final String ENABLED_FIELD = "ENABLED";
     private static final String PROFILE_FIELD = "PROFILE";
     private static final String PROVIDER_FIELD = "PROVIDER";
+    private static final String CACHE_SECRETS_FIELD = "CACHE_SECRETS";
+    private static final String STALE_WHILE_REVALIDATE_FIELD = "STALE_WHILE_REVALIDATE";
+    private static final String MAX_STALE_MINUTES_FIELD = "MAX_STALE_MINUTES";
+    private static final String MASK_SECRETS_FIELD = "MASK_SECRETS";
+    private static final String RESOLVE_TIMEOUT_SECONDS_FIELD = "RESOLVE_TIMEOUT_SECONDS";
+    private static final String FALLBACK_PROVIDER_FIELD = "FALLBACK_PROVIDER";
+    
+    private final AtomicReference<SecretSpecSettingsSnapshot> snapshot;
     
     public SecretSpecRunSettings() {
-        // Default constructor
+        this.snapshot = new AtomicReference<>(SecretSpecSettingsSnapshot.DEFAULT);
     }
     
     public SecretSpecRunSettings(boolean enabled, String profile, String provider) {
-        this.enabled = enabled;
-        this.profile = profile != null ? profile : "";
-        this.provider = provider != null ? provider : "";
+        this.snapshot = new AtomicReference<>(SecretSpecSettingsSnapshot.DEFAULT
+                .withEnabled(enabled).withProfile(profile).withProvider(provider));
+    }
+    
+    /**
+     * The current settings as one consistent, immutable snapshot. Launches should read this once and use it throughout.
+     */
+    public @NotNull SecretSpecSettingsSnapshot snapshot() {
+        return snapshot.get();
+    }
+    
+    /**
+     * Publish new settings at once, e.g. everything the settings editor applies
+     */
+    public void setSnapshot(@NotNull SecretSpecSettingsSnapshot snapshot) {
+        this.snapshot.set(snapshot);
+    }
+    
+    private void update(@NotNull UnaryOperator<SecretSpecSettingsSnapshot> change) {
+        snapshot.updateAndGet(change);
     }
     
     public boolean isEnabled() {
-        return enabled;
+        return snapshot().isEnabled();
     }
     
     public void setEnabled(boolean enabled) {
-        this.enabled = enabled;
+        update(s -> s.withEnabled(enabled));
     }
     
     public String getProfile() {
-        return profile != null ? profile : "";
+        return snapshot().getRawProfile();
     }
     
     public void setProfile(String profile) {
-        this.profile = profile;
+        update(s -> s.withProfile(profile));
     }
     
     public String getProvider() {
-        return provider != null ? provider : "";
+        return snapshot().getRawProvider();
     }
     
     public void setProvider(String provider) {
-        this.provider = provider;
+        update(s -> s.withProvider(provider));
+    }
+    
+    /**
+     * Whether resolved secrets are cached and injected directly into the environment,
+     * falling back to the secretspec wrapper only on a cache miss
+     */
+    public boolean isCacheSecrets() {
+        return snapshot().isCacheSecrets();
+    }
+    
+    public void setCacheSecrets(boolean cacheSecrets) {
+        update(s -> s.withCacheSecrets(cacheSecrets));
+    }
+    
+    /**
+     * Whether a launch may use expired cached secrets while they are refreshed in the background
+     */
+    public boolean isStaleWhileRevalidate() {
+        return snapshot().isStaleWhileRevalidate();
+    }
+    
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        update(s -> s.withStaleWhileRevalidate(staleWhileRevalidate));
+    }
+    
+    /**
+     * How long past their expiry cached secrets may still be used with stale-while-revalidate
+     */
+    public int getMaxStaleMinutes() {
+        return snapshot().getMaxStaleMinutes();
+    }
+    
+    public void setMaxStaleMinutes(int maxStaleMinutes) {
+        update(s -> s.withMaxStaleMinutes(maxStaleMinutes));
+    }
+    
+    /**
+     * Whether secret values injected by the plugin are masked in the Run/Debug console output
+     */
+    public boolean isMaskSecrets() {
+        return snapshot().isMaskSecrets();
+    }
+    
+    public void setMaskSecrets(boolean maskSecrets) {
+        update(s -> s.withMaskSecrets(maskSecrets));
+    }
+    
+    /**
+     * How long a launch waits for its secrets before the fallback provider is tried or the launch goes on without them
+     */
+    public int getResolveTimeoutSeconds() {
+        return snapshot().getResolveTimeoutSeconds();
+    }
+    
+    public void setResolveTimeoutSeconds(int resolveTimeoutSeconds) {
+        update(s -> s.withResolveTimeoutSeconds(resolveTimeoutSeconds));
+    }
+    
+    /**
+     * Provider tried when the primary one is slow or unavailable, e.g. a local dotenv provider
+     */
+    public String getFallbackProvider() {
+        return snapshot().getRawFallbackProvider();
+    }
+    
+    public void setFallbackProvider(String fallbackProvider) {
+        update(s -> s.withFallbackProvider(fallbackProvider));
     }
     
     public boolean hasProfile() {
-        return profile != null && !profile.trim().isEmpty();
+        return snapshot().hasProfile();
     }
     
     public boolean hasProvider() {
-        return provider != null && !provider.trim().isEmpty();
+        return snapshot().hasProvider();
     }
     
     /**
      * Build the secretspec command prefix based on current settings
      */
     public String buildCommandPrefix() {
-        StringBuilder sb = new StringBuilder("secretspec run");
-        
-        if (hasProfile()) {
-            sb.append(" --profile ").append(profile.trim());
-        }
-        
-        if (hasProvider()) {
-            sb.append(" --provider ").append(provider.trim());
-        }
-        
-        sb.append(" --");
-        
-        return sb.toString();
+        return snapshot().getCommandPrefix();
     }
     
     /**
      * Read settings from XML element
      */
     public void readExternal(@NotNull Element element) {
-        String enabledStr = JDOMExternalizerUtil.readField(element, ENABLED_FIELD);
-        this.enabled = Boolean.parseBoolean(enabledStr);
-        this.profile = JDOMExternalizerUtil.readField(element, PROFILE_FIELD, "");
-        this.provider = JDOMExternalizerUtil.readField(element, PROVIDER_FIELD, "");
+        setSnapshot(new SecretSpecSettingsSnapshot(
+                Boolean.parseBoolean(JDOMExternalizerUtil.readField(element, ENABLED_FIELD)),
+                JDOMExternalizerUtil.readField(element, PROFILE_FIELD, ""),
+                JDOMExternalizerUtil.readField(element, PROVIDER_FIELD, ""),
+                Boolean.parseBoolean(JDOMExternalizerUtil.readField(element, CACHE_SECRETS_FIELD)),
+                Boolean.parseBoolean(JDOMExternalizerUtil.readField(element, STALE_WHILE_REVALIDATE_FIELD)),
+                parseInt(JDOMExternalizerUtil.readField(element, MAX_STALE_MINUTES_FIELD), DEFAULT_MAX_STALE_MINUTES),
+                Boolean.parseBoolean(JDOMExternalizerUtil.readField(element, MASK_SECRETS_FIELD)),
+                parseInt(JDOMExternalizerUtil.readField(element, RESOLVE_TIMEOUT_SECONDS_FIELD), DEFAULT_RESOLVE_TIMEOUT_SECONDS),
+                JDOMExternalizerUtil.readField(element, FALLBACK_PROVIDER_FIELD, "")));
     }
     
     /**
      * Write settings to XML element
      */
     public void writeExternal(@NotNull Element element) {
-        JDOMExternalizerUtil.writeField(element, ENABLED_FIELD, String.valueOf(enabled));
-        JDOMExternalizerUtil.writeField(element, PROFILE_FIELD, profile);
-        JDOMExternalizerUtil.writeField(element, PROVIDER_FIELD, provider);
+        SecretSpecSettingsSnapshot settings = snapshot();
+        JDOMExternalizerUtil.writeField(element, ENABLED_FIELD, String.valueOf(settings.isEnabled()));
+        JDOMExternalizerUtil.writeField(element, PROFILE_FIELD, settings.getRawProfile());
+        JDOMExternalizerUtil.writeField(element, PROVIDER_FIELD, settings.getRawProvider());
+        JDOMExternalizerUtil.writeField(element, CACHE_SECRETS_FIELD, String.valueOf(settings.isCacheSecrets()));
+        JDOMExternalizerUtil.writeField(element, STALE_WHILE_REVALIDATE_FIELD, String.valueOf(settings.isStaleWhileRevalidate()));
+        JDOMExternalizerUtil.writeField(element, MAX_STALE_MINUTES_FIELD, String.valueOf(settings.getMaxStaleMinutes()));
+        JDOMExternalizerUtil.writeField(element, MASK_SECRETS_FIELD, String.valueOf(settings.isMaskSecrets()));
+        JDOMExternalizerUtil.writeField(element, RESOLVE_TIMEOUT_SECONDS_FIELD, String.valueOf(settings.getResolveTimeoutSeconds()));
+        JDOMExternalizerUtil.writeField(element, FALLBACK_PROVIDER_FIELD, settings.getRawFallbackProvider());
+    }
+    
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
     
     @Override
     public String toString() {
-        return "SecretSpecRunSettings{" +
-                "enabled=" + enabled +
-                ", profile='" + profile + '\'' +
-                ", provider='" + provider + '\'' +
-                '}';
+        return "SecretSpecRunSettings{" + snapshot() + '}';
     }
 }
@@ -1,27 +1,73 @@
 package com.thesoulless.secretspecplugin.common;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComponentValidator;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.TextFieldWithAutoCompletion;
 import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBLabel;
-import com.intellij.ui.components.JBTextField;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.FormBuilder;
 import com.intellij.util.ui.JBUI;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import com.thesoulless.secretspecplugin.spec.SecretSpecProjectIndex;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * UI panel for the SecretSpec tab in run configuration dialogs
- * Shared across all platform implementations
+ * Shared across all platform implementations.
+ * Profiles are completed and validated against the secretspec.toml of the configuration's working directory,
+ * looked up off the EDT after typing pauses.
  */
 public class SecretSpecSettingsPanel extends JPanel {
     
+    private static final int VALIDATION_DELAY_MILLIS = 300;
+    private static final List<String> KNOWN_PROVIDERS = List.of("keyring", "onepassword", "dotenv", "env", "lastpass");
+    
+    private final Project project;
+    private final Disposable parentDisposable;
+    private final Alarm validationAlarm;
     private final JBCheckBox enabledCheckBox = new JBCheckBox("Enable SecretSpec for this run configuration");
-    private final JBTextField profileField = new JBTextField();
-    private final JBTextField providerField = new JBTextField();
+    private final TextFieldWithAutoCompletion<String> profileField;
+    private final TextFieldWithAutoCompletion<String> providerField;
+    private final JBCheckBox cacheSecretsCheckBox = new JBCheckBox("Cache resolved secrets and inject them directly");
+    private final JBCheckBox staleWhileRevalidateCheckBox = new JBCheckBox("Launch with last known secrets while refreshing them, for up to");
+    private final JBIntSpinner maxStaleSpinner = new JBIntSpinner(SecretSpecRunSettings.DEFAULT_MAX_STALE_MINUTES, 0,
+            SecretSpecRunSettings.MAX_STALE_MINUTES_LIMIT);
+    private final JBCheckBox maskSecretsCheckBox = new JBCheckBox("Mask secret values in the console output");
+    private final JBIntSpinner resolveTimeoutSpinner = new JBIntSpinner(SecretSpecRunSettings.DEFAULT_RESOLVE_TIMEOUT_SECONDS, 1,
+            SecretSpecRunSettings.MAX_RESOLVE_TIMEOUT_SECONDS);
+    private final TextFieldWithAutoCompletion<String> fallbackProviderField;
+    
+    // Spec of the working directory, kept until the working directory or the file changes
+    private volatile String workingDirectory;
+    private volatile SpecLookup specLookup;
     
-    public SecretSpecSettingsPanel() {
+    public SecretSpecSettingsPanel(@NotNull Project project, @NotNull Disposable parentDisposable) {
         super(new BorderLayout());
+        this.project = project;
+        this.parentDisposable = parentDisposable;
+        this.validationAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, parentDisposable);
+        this.profileField = TextFieldWithAutoCompletion.create(project, Collections.emptyList(), true, null);
+        this.providerField = TextFieldWithAutoCompletion.create(project, KNOWN_PROVIDERS, true, null);
+        this.fallbackProviderField = TextFieldWithAutoCompletion.create(project, KNOWN_PROVIDERS, true, null);
         setupUI();
     }
     
@@ -46,6 +92,9 @@ public class SecretSpecSettingsPanel extends JPanel {
         JPanel settingsPanel = FormBuilder.createFormBuilder()
                 .addLabeledComponent(new JBLabel("Profile:"), createProfilePanel(), 1, false)
                 .addLabeledComponent(new JBLabel("Provider:"), createProviderPanel(), 1, false)
+                .addLabeledComponent(new JBLabel("Fallback provider:"), createFallbackPanel(), 1, false)
+                .addComponent(createCachePanel(), 1)
+                .addComponent(createMaskPanel(), 1)
                 .addComponentFillVertically(new JPanel(), 0)
                 .getPanel();
         
@@ -81,6 +130,53 @@ public class SecretSpecSettingsPanel extends JPanel {
         return panel;
     }
     
+    private JPanel createFallbackPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(fallbackProviderField, BorderLayout.NORTH);
+        
+        JPanel timeoutPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        timeoutPanel.add(new JLabel("Give up on the provider after "));
+        timeoutPanel.add(resolveTimeoutSpinner);
+        timeoutPanel.add(new JLabel(" seconds"));
+        panel.add(timeoutPanel, BorderLayout.CENTER);
+        
+        JLabel helpLabel = new JLabel("<html><small><i>Optional. Provider tried when the primary one times out, fails or keeps failing (e.g. dotenv).<br/>" +
+                "A provider that fails repeatedly is skipped for a cooldown period instead of delaying every launch.</i></small></html>");
+        helpLabel.setForeground(Color.GRAY);
+        panel.add(helpLabel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    private JPanel createCachePanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(cacheSecretsCheckBox, BorderLayout.NORTH);
+        
+        JPanel stalePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        stalePanel.add(staleWhileRevalidateCheckBox);
+        stalePanel.add(maxStaleSpinner);
+        stalePanel.add(new JLabel(" minutes"));
+        panel.add(stalePanel, BorderLayout.CENTER);
+        
+        JLabel helpLabel = new JLabel("<html><small><i>Resolves secrets once and reuses them for later launches. The secretspec wrapper is only used on a cache miss.<br/>" +
+                "With a slow provider, expired secrets can be used immediately while a background refresh updates them.</i></small></html>");
+        helpLabel.setForeground(Color.GRAY);
+        panel.add(helpLabel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
+    private JPanel createMaskPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(maskSecretsCheckBox, BorderLayout.NORTH);
+        
+        JLabel helpLabel = new JLabel("<html><small><i>Replaces secrets injected by the plugin (cached, prefetched or agent-resolved) with ****** in Run/Debug consoles.</i></small></html>");
+        helpLabel.setForeground(Color.GRAY);
+        panel.add(helpLabel, BorderLayout.SOUTH);
+        
+        return panel;
+    }
+    
     private JPanel createExamplePanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(JBUI.Borders.customLine(Color.LIGHT_GRAY, 1, 0, 0, 0));
@@ -108,33 +204,173 @@ public class SecretSpecSettingsPanel extends JPanel {
     }
     
     private void setupEventListeners() {
+        new ComponentValidator(parentDisposable).installOn(profileField);
+        new ComponentValidator(parentDisposable).installOn(providerField);
+        new ComponentValidator(parentDisposable).installOn(fallbackProviderField);
+        DocumentListener validateOnChange = new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                scheduleValidation();
+            }
+        };
+        profileField.addDocumentListener(validateOnChange);
+        providerField.addDocumentListener(validateOnChange);
+        fallbackProviderField.addDocumentListener(validateOnChange);
+        
         enabledCheckBox.addActionListener(e -> {
             boolean enabled = enabledCheckBox.isSelected();
             profileField.setEnabled(enabled);
             providerField.setEnabled(enabled);
+            fallbackProviderField.setEnabled(enabled);
+            resolveTimeoutSpinner.setEnabled(enabled);
+            cacheSecretsCheckBox.setEnabled(enabled);
+            staleWhileRevalidateCheckBox.setEnabled(enabled);
+            maxStaleSpinner.setEnabled(enabled);
+            maskSecretsCheckBox.setEnabled(enabled);
+            scheduleValidation();
         });
     }
     
+    /**
+     * Working directory of the edited configuration, whose secretspec.toml provides profile completion
+     */
+    public void setWorkingDirectory(@Nullable String workingDirectory) {
+        this.workingDirectory = workingDirectory;
+        scheduleValidation();
+    }
+    
+    /**
+     * Validate once typing pauses; the spec lookup runs in a non-blocking read action off the EDT
+     */
+    private void scheduleValidation() {
+        validationAlarm.cancelAllRequests();
+        validationAlarm.addRequest(() -> {
+            String directory = workingDirectory;
+            String profile = profileField.getText().trim();
+            String provider = providerField.getText().trim();
+            String fallbackProvider = fallbackProviderField.getText().trim();
+            boolean enabled = enabledCheckBox.isSelected();
+            ReadAction.nonBlocking(() -> lookUpSpec(directory))
+                    .coalesceBy(this)
+                    .expireWith(parentDisposable)
+                    .finishOnUiThread(ModalityState.any(), lookup -> showValidation(lookup, enabled, profile, provider, fallbackProvider))
+                    .submit(AppExecutorUtil.getAppExecutorService());
+        }, VALIDATION_DELAY_MILLIS);
+    }
+    
+    private @NotNull SpecLookup lookUpSpec(@Nullable String directory) {
+        SpecLookup cached = specLookup;
+        if (cached != null && cached.isValidFor(directory)) {
+            return cached;
+        }
+        VirtualFile spec = directory != null ? SecretSpecLocator.getInstance().findSpec(directory) : null;
+        SpecLookup lookup = new SpecLookup(directory, spec, spec != null ? SecretSpecProjectIndex.getInstance(project).getInfo(spec) : null);
+        specLookup = lookup;
+        return lookup;
+    }
+    
+    private void showValidation(@NotNull SpecLookup lookup, boolean enabled, @NotNull String profile, @NotNull String provider,
+                                @NotNull String fallbackProvider) {
+        Collection<String> profiles = lookup.info != null ? lookup.info.getProfileNames() : Collections.emptyList();
+        profileField.setVariants(profiles);
+        
+        ValidationInfo profileInfo = null;
+        if (enabled && !profile.isEmpty() && lookup.info != null && !lookup.info.hasProfile(profile)) {
+            profileInfo = new ValidationInfo("Profile '" + profile + "' is not defined in " + lookup.spec.getPath() +
+                    ". Available: " + String.join(", ", profiles), profileField).asWarning();
+        }
+        updateValidator(profileField, profileInfo);
+        
+        updateValidator(providerField, enabled ? validateProvider(provider, providerField) : null);
+        
+        ValidationInfo fallbackInfo = enabled ? validateProvider(fallbackProvider, fallbackProviderField) : null;
+        if (enabled && fallbackInfo == null && !fallbackProvider.isEmpty() && fallbackProvider.equals(provider)) {
+            fallbackInfo = new ValidationInfo("The fallback provider is the same as the provider and is never tried",
+                    fallbackProviderField).asWarning();
+        }
+        updateValidator(fallbackProviderField, fallbackInfo);
+    }
+    
+    static @Nullable ValidationInfo validateProvider(@NotNull String provider, @NotNull JComponent field) {
+        String scheme = SecretSpecSettingsSnapshot.getProviderScheme(provider);
+        if (scheme.isEmpty() || KNOWN_PROVIDERS.contains(scheme)) {
+            return null;
+        }
+        return new ValidationInfo("Unknown provider '" + scheme + "'. Known providers: " +
+                String.join(", ", KNOWN_PROVIDERS), field).asWarning();
+    }
+    
+    private static void updateValidator(@NotNull JComponent component, @Nullable ValidationInfo info) {
+        ComponentValidator.getInstance(component).ifPresent(validator -> validator.updateInfo(info));
+    }
+    
+    /**
+     * The spec found for a working directory, reused while the file is unchanged
+     */
+    private static final class SpecLookup {
+        private final String directory;
+        private final VirtualFile spec;
+        private final long modificationStamp;
+        private final SecretSpecFileInfo info;
+        
+        SpecLookup(@Nullable String directory, @Nullable VirtualFile spec, @Nullable SecretSpecFileInfo info) {
+            this.directory = directory;
+            this.spec = spec;
+            this.modificationStamp = spec != null ? spec.getModificationStamp() : -1;
+            this.info = info;
+        }
+        
+        boolean isValidFor(@Nullable String directory) {
+            if (!Objects.equals(this.directory, directory)) {
+                return false;
+            }
+            // A missing spec is looked up again (a memoized miss for the locator), it may have been created meanwhile
+            return spec != null && spec.isValid() && spec.getModificationStamp() == modificationStamp;
+        }
+    }
+    
     /**
      * Load settings from SecretSpecRunSettings into the UI
      */
     public void resetFrom(@NotNull SecretSpecRunSettings settings) {
-        enabledCheckBox.setSelected(settings.isEnabled());
-        profileField.setText(settings.getProfile());
-        providerField.setText(settings.getProvider());
+        SecretSpecSettingsSnapshot snapshot = settings.snapshot();
+        enabledCheckBox.setSelected(snapshot.isEnabled());
+        profileField.setText(snapshot.getRawProfile());
+        providerField.setText(snapshot.getRawProvider());
+        cacheSecretsCheckBox.setSelected(snapshot.isCacheSecrets());
+        staleWhileRevalidateCheckBox.setSelected(snapshot.isStaleWhileRevalidate());
+        maxStaleSpinner.setNumber(snapshot.getMaxStaleMinutes());
+        maskSecretsCheckBox.setSelected(snapshot.isMaskSecrets());
+        resolveTimeoutSpinner.setNumber(snapshot.getResolveTimeoutSeconds());
+        fallbackProviderField.setText(snapshot.getRawFallbackProvider());
         
         // Update field states
-        boolean enabled = settings.isEnabled();
+        boolean enabled = snapshot.isEnabled();
         profileField.setEnabled(enabled);
         providerField.setEnabled(enabled);
+        fallbackProviderField.setEnabled(enabled);
+        resolveTimeoutSpinner.setEnabled(enabled);
+        cacheSecretsCheckBox.setEnabled(enabled);
+        staleWhileRevalidateCheckBox.setEnabled(enabled);
+        maxStaleSpinner.setEnabled(enabled);
+        maskSecretsCheckBox.setEnabled(enabled);
+        scheduleValidation();
     }
     
     /**
-     * Save UI values to SecretSpecRunSettings
+     * Save UI values to SecretSpecRunSettings, publishing them as one snapshot so a concurrent launch
+     * never sees half-applied settings
      */
     public void applyTo(@NotNull SecretSpecRunSettings settings) {
-        settings.setEnabled(enabledCheckBox.isSelected());
-        settings.setProfile(profileField.getText().trim());
-        settings.setProvider(providerField.getText().trim());
+        settings.setSnapshot(new SecretSpecSettingsSnapshot(
+                enabledCheckBox.isSelected(),
+                profileField.getText().trim(),
+                providerField.getText().trim(),
+                cacheSecretsCheckBox.isSelected(),
+                staleWhileRevalidateCheckBox.isSelected(),
+                maxStaleSpinner.getNumber(),
+                maskSecretsCheckBox.isSelected(),
+                resolveTimeoutSpinner.getNumber(),
+                fallbackProviderField.getText().trim()));
     }
 }
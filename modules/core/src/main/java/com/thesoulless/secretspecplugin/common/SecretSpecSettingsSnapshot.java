@@ -0,0 +1,219 @@
+package com.thesoulless.secretspecplugin.common;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable view of SecretSpec run settings, read once per launch.
+ * Profile and provider are trimmed up front and the command prefix is computed once,
+ * so the launch path needs no locking and no per-access string work.
+ */
+public final class SecretSpecSettingsSnapshot {
+
+    public static final SecretSpecSettingsSnapshot DEFAULT = new SecretSpecSettingsSnapshot(
+            false, "", "", false, false, SecretSpecRunSettings.DEFAULT_MAX_STALE_MINUTES, false,
+            SecretSpecRunSettings.DEFAULT_RESOLVE_TIMEOUT_SECONDS, "");
+
+    private final boolean enabled;
+    private final String rawProfile;
+    private final String rawProvider;
+    private final String profile;
+    private final String provider;
+    private final boolean cacheSecrets;
+    private final boolean staleWhileRevalidate;
+    private final int maxStaleMinutes;
+    private final boolean maskSecrets;
+    private final int resolveTimeoutSeconds;
+    private final String rawFallbackProvider;
+    private final String fallbackProvider;
+    private final String commandPrefix;
+
+    public SecretSpecSettingsSnapshot(boolean enabled, @Nullable String profile, @Nullable String provider,
+                                      boolean cacheSecrets, boolean staleWhileRevalidate, int maxStaleMinutes,
+                                      boolean maskSecrets, int resolveTimeoutSeconds, @Nullable String fallbackProvider) {
+        this.enabled = enabled;
+        this.rawProfile = profile != null ? profile : "";
+        this.rawProvider = provider != null ? provider : "";
+        this.profile = rawProfile.trim();
+        this.provider = rawProvider.trim();
+        this.cacheSecrets = cacheSecrets;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.maxStaleMinutes = Math.max(0, Math.min(SecretSpecRunSettings.MAX_STALE_MINUTES_LIMIT, maxStaleMinutes));
+        this.maskSecrets = maskSecrets;
+        this.resolveTimeoutSeconds = Math.max(1, Math.min(SecretSpecRunSettings.MAX_RESOLVE_TIMEOUT_SECONDS, resolveTimeoutSeconds));
+        this.rawFallbackProvider = fallbackProvider != null ? fallbackProvider : "";
+        this.fallbackProvider = rawFallbackProvider.trim();
+        this.commandPrefix = buildCommandPrefix(this.profile, this.provider);
+    }
+
+    /**
+     * The kind of a provider URI, e.g. 'dotenv' for dotenv:/path/to/.env or 'onepassword' for onepassword://vault
+     */
+    public static @NotNull String getProviderScheme(@NotNull String provider) {
+        int colon = provider.indexOf(':');
+        return colon >= 0 ? provider.substring(0, colon) : provider;
+    }
+
+    private static @NotNull String buildCommandPrefix(@NotNull String profile, @NotNull String provider) {
+        StringBuilder sb = new StringBuilder("secretspec run");
+        if (!profile.isEmpty()) {
+            sb.append(" --profile ").append(profile);
+        }
+        if (!provider.isEmpty()) {
+            sb.append(" --provider ").append(provider);
+        }
+        sb.append(" --");
+        return sb.toString();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Trimmed profile, empty when not set
+     */
+    public @NotNull String getProfile() {
+        return profile;
+    }
+
+    /**
+     * Trimmed provider, empty when not set
+     */
+    public @NotNull String getProvider() {
+        return provider;
+    }
+
+    /**
+     * Profile exactly as entered, for persistence and the settings editor
+     */
+    public @NotNull String getRawProfile() {
+        return rawProfile;
+    }
+
+    /**
+     * Provider exactly as entered, for persistence and the settings editor
+     */
+    public @NotNull String getRawProvider() {
+        return rawProvider;
+    }
+
+    public boolean hasProfile() {
+        return !profile.isEmpty();
+    }
+
+    public boolean hasProvider() {
+        return !provider.isEmpty();
+    }
+
+    public boolean isCacheSecrets() {
+        return cacheSecrets;
+    }
+
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public int getMaxStaleMinutes() {
+        return maxStaleMinutes;
+    }
+
+    public boolean isMaskSecrets() {
+        return maskSecrets;
+    }
+
+    /**
+     * How long a launch waits for its secrets before it gives up on the provider
+     */
+    public int getResolveTimeoutSeconds() {
+        return resolveTimeoutSeconds;
+    }
+
+    /**
+     * Trimmed provider tried when the primary one times out, fails or is skipped by its circuit breaker, empty when not set
+     */
+    public @NotNull String getFallbackProvider() {
+        return fallbackProvider;
+    }
+
+    /**
+     * Fallback provider exactly as entered, for persistence and the settings editor
+     */
+    public @NotNull String getRawFallbackProvider() {
+        return rawFallbackProvider;
+    }
+
+    /**
+     * Whether a fallback provider is set that differs from the primary one
+     */
+    public boolean hasFallbackProvider() {
+        return !fallbackProvider.isEmpty() && !fallbackProvider.equals(provider);
+    }
+
+    /**
+     * The 'secretspec run [--profile p] [--provider p] --' prefix for these settings
+     */
+    public @NotNull String getCommandPrefix() {
+        return commandPrefix;
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withEnabled(boolean enabled) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withProfile(@Nullable String profile) {
+        return new SecretSpecSettingsSnapshot(enabled, profile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withProvider(@Nullable String provider) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, provider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withCacheSecrets(boolean cacheSecrets) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withMaxStaleMinutes(int maxStaleMinutes) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withMaskSecrets(boolean maskSecrets) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withResolveTimeoutSeconds(int resolveTimeoutSeconds) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, rawFallbackProvider);
+    }
+
+    public @NotNull SecretSpecSettingsSnapshot withFallbackProvider(@Nullable String fallbackProvider) {
+        return new SecretSpecSettingsSnapshot(enabled, rawProfile, rawProvider, cacheSecrets, staleWhileRevalidate, maxStaleMinutes, maskSecrets,
+                resolveTimeoutSeconds, fallbackProvider);
+    }
+
+    @Override
+    public String toString() {
+        return "SecretSpecSettingsSnapshot{" +
+                "enabled=" + enabled +
+                ", profile='" + profile + '\'' +
+                ", provider='" + provider + '\'' +
+                ", cacheSecrets=" + cacheSecrets +
+                ", staleWhileRevalidate=" + staleWhileRevalidate +
+                ", maxStaleMinutes=" + maxStaleMinutes +
+                ", maskSecrets=" + maskSecrets +
+                ", resolveTimeoutSeconds=" + resolveTimeoutSeconds +
+                ", fallbackProvider='" + fallbackProvider + '\'' +
+                '}';
+    }
+}
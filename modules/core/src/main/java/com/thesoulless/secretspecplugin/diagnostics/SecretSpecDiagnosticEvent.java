@@ -0,0 +1,76 @@
+package com.thesoulless.secretspecplugin.diagnostics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * One launch event in the diagnostics buffer. The message is kept as a format string and its arguments,
+ * and only rendered when the event is shown or exported.
+ */
+public final class SecretSpecDiagnosticEvent {
+
+    /**
+     * Launch stage an event belongs to
+     */
+    public enum Kind {
+        SCHEDULED,
+        PREFETCH,
+        CACHE,
+        CIRCUIT,
+        FALLBACK,
+        INJECTED,
+        PATCHED,
+        STARTED,
+        TERMINATED
+    }
+
+    private final long sequence;
+    private final long timeMillis;
+    private final Kind kind;
+    private final String subject;
+    private final String format;
+    private final Object[] args;
+
+    SecretSpecDiagnosticEvent(long sequence, @NotNull Kind kind, @Nullable String subject,
+                              @NotNull String format, @NotNull Object[] args) {
+        this.sequence = sequence;
+        this.timeMillis = System.currentTimeMillis();
+        this.kind = kind;
+        this.subject = subject;
+        this.format = format;
+        this.args = args;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Run configuration or working directory the event is about
+     */
+    public @NotNull String getSubject() {
+        return subject != null ? subject : "";
+    }
+
+    public @NotNull String getMessage() {
+        Object[] rendered = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            // Command lines are recorded as lists, joining them is part of the deferred work
+            rendered[i] = args[i] instanceof Collection ?
+                    ((Collection<?>) args[i]).stream().map(String::valueOf).collect(Collectors.joining(" ")) : args[i];
+        }
+        return String.format(Locale.ROOT, format, rendered);
+    }
+}
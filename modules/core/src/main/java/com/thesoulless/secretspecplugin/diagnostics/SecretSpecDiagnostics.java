@@ -0,0 +1,93 @@
+package com.thesoulless.secretspecplugin.diagnostics;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecExecutable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size in-memory buffer of the most recent SecretSpec launch events.
+ * Recording is an allocation and two atomic writes; nothing is formatted or written to idea.log, so
+ * command lines stay out of the log and are only rendered in the diagnostics view or an exported report.
+ */
+public class SecretSpecDiagnostics {
+
+    static final int CAPACITY = 512;
+
+    private final AtomicReferenceArray<SecretSpecDiagnosticEvent> events = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong recorded = new AtomicLong();
+
+    public static @NotNull SecretSpecDiagnostics getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecDiagnostics.class);
+    }
+
+    /**
+     * Record an event. The arguments are kept as they are and formatted into the message only when it is shown,
+     * so pass cheap values; collections are joined with spaces.
+     */
+    public void record(@NotNull SecretSpecDiagnosticEvent.Kind kind, @Nullable String subject,
+                       @NotNull String format, @NotNull Object... args) {
+        long sequence = recorded.getAndIncrement();
+        events.set((int) (sequence % CAPACITY), new SecretSpecDiagnosticEvent(sequence, kind, subject, format, args));
+    }
+
+    /**
+     * The buffered events, oldest first
+     */
+    public @NotNull List<SecretSpecDiagnosticEvent> getEvents() {
+        long end = recorded.get();
+        long start = Math.max(0, end - CAPACITY);
+        List<SecretSpecDiagnosticEvent> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            SecretSpecDiagnosticEvent event = events.get((int) (sequence % CAPACITY));
+            // Skip slots that are still being written or were already overwritten by a newer event
+            if (event != null && event.getSequence() == sequence) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Events recorded since the last clear, including those pushed out of the buffer
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            events.set(i, null);
+        }
+        recorded.set(0);
+    }
+
+    /**
+     * Plain-text report of the buffered events, for attaching to bug reports
+     */
+    public @NotNull String renderReport() {
+        List<SecretSpecDiagnosticEvent> snapshot = getEvents();
+        SecretSpecExecutable.Capabilities capabilities = SecretSpecExecutable.getInstance().getProbedCapabilities();
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        StringBuilder report = new StringBuilder()
+                .append("SecretSpec diagnostics\n")
+                .append("secretspec: ").append(SecretSpecExecutable.getInstance().getCommand())
+                .append(" (").append(capabilities).append(")\n")
+                .append("Events: ").append(snapshot.size()).append(" of ").append(getRecordedCount()).append(" recorded\n\n");
+        for (SecretSpecDiagnosticEvent event : snapshot) {
+            report.append(timeFormat.format(new Date(event.getTimeMillis())))
+                    .append(' ').append(event.getKind())
+                    .append(' ').append(event.getSubject())
+                    .append(": ").append(event.getMessage())
+                    .append('\n');
+        }
+        return report.toString();
+    }
+}
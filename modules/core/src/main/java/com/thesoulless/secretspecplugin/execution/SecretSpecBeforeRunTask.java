@@ -0,0 +1,15 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import com.intellij.execution.BeforeRunTask;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Before launch task that starts resolving SecretSpec secrets while the rest of the launch proceeds
+ */
+public class SecretSpecBeforeRunTask extends BeforeRunTask<SecretSpecBeforeRunTask> {
+    
+    public SecretSpecBeforeRunTask(@NotNull Key<SecretSpecBeforeRunTask> providerId) {
+        super(providerId);
+    }
+}
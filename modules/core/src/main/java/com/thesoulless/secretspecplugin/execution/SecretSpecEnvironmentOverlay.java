@@ -0,0 +1,45 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Layers resolved secrets over a launch environment.
+ * <p>
+ * GeneralCommandLine already keeps its variables as a layer over the parent environment and merges them once
+ * when the process is created, so secrets only need to be written into that layer; the parent environment is
+ * never copied.
+ */
+public final class SecretSpecEnvironmentOverlay {
+
+    private SecretSpecEnvironmentOverlay() {
+    }
+
+    /**
+     * Add the secrets to the variables of the command line
+     *
+     * @return the number of variables that were added or changed
+     */
+    public static int inject(@NotNull GeneralCommandLine cmdLine, @NotNull Map<String, String> secrets) {
+        return inject(cmdLine.getEnvironment(), secrets);
+    }
+
+    /**
+     * Add the secrets to a launch environment, skipping variables that already have the same value
+     *
+     * @return the number of variables that were added or changed
+     */
+    public static int inject(@NotNull Map<String, String> environment, @NotNull Map<String, String> secrets) {
+        int changed = 0;
+        for (Map.Entry<String, String> secret : secrets.entrySet()) {
+            if (!Objects.equals(environment.get(secret.getKey()), secret.getValue())) {
+                environment.put(secret.getKey(), secret.getValue());
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,132 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A secretspec startup failure recognized from its error output
+ */
+public final class SecretSpecFailure {
+
+    public enum Kind {
+        MISSING_SECRET("Missing secret", false),
+        UNKNOWN_PROFILE("Unknown profile", false),
+        PROVIDER_AUTH("Provider authentication failed", false),
+        PROVIDER_UNAVAILABLE("Provider unavailable", true);
+
+        private final String title;
+        private final boolean transientFailure;
+
+        Kind(String title, boolean transientFailure) {
+            this.title = title;
+            this.transientFailure = transientFailure;
+        }
+
+        public @NotNull String getTitle() {
+            return title;
+        }
+
+        /**
+         * Whether retrying without user action may succeed, e.g. after a provider timeout
+         */
+        public boolean isTransient() {
+            return transientFailure;
+        }
+    }
+
+    // Checked in order; the first match wins
+    private static final Pattern MISSING_SECRET = Pattern.compile(
+            "(?i)(missing (required )?secrets?|required secrets? .*(missing|not (found|set))|secret .*(is )?not (found|set))");
+    private static final Pattern UNKNOWN_PROFILE = Pattern.compile(
+            "(?i)(unknown profile|profile .*(not found|does not exist|is not defined|unknown))");
+    private static final Pattern PROVIDER_AUTH = Pattern.compile(
+            "(?i)(not (signed|logged) in|authenticat(e|ion) (failed|required|error)|unauthori[sz]ed|session (has )?expired|login (required|expired)|access denied|permission denied)");
+    private static final Pattern PROVIDER_UNAVAILABLE = Pattern.compile(
+            "(?i)(timed? ?out|connection (refused|reset)|could not connect|service unavailable|temporarily unavailable|network is unreachable)");
+    // secretspec starts its own errors with one of these; the program it runs shares stderr and doesn't
+    private static final Pattern REPORT_START = Pattern.compile("(?i)^(secretspec(\\.exe)?:|error(\\[\\w+])?:)");
+    // Causes and details of the same error are indented or listed under "Caused by:"
+    private static final Pattern REPORT_CONTINUATION = Pattern.compile("^(\\s+\\S|Caused by:)");
+    private static final Pattern SECRET_NAME = Pattern.compile("['\"`]?([A-Z][A-Z0-9_]{1,})['\"`]?");
+
+    private final Kind kind;
+    private final String message;
+    private final String secretName;
+
+    public SecretSpecFailure(@NotNull Kind kind, @NotNull String message, @Nullable String secretName) {
+        this.kind = kind;
+        this.message = message;
+        this.secretName = secretName;
+    }
+
+    /**
+     * Classify one line of secretspec output, or null if it doesn't describe a known failure
+     */
+    public static @Nullable SecretSpecFailure classify(@NotNull String line) {
+        String message = line.trim();
+        if (message.isEmpty()) {
+            return null;
+        }
+        if (MISSING_SECRET.matcher(message).find()) {
+            return new SecretSpecFailure(Kind.MISSING_SECRET, message, findSecretName(message));
+        }
+        if (UNKNOWN_PROFILE.matcher(message).find()) {
+            return new SecretSpecFailure(Kind.UNKNOWN_PROFILE, message, null);
+        }
+        if (PROVIDER_AUTH.matcher(message).find()) {
+            return new SecretSpecFailure(Kind.PROVIDER_AUTH, message, null);
+        }
+        if (PROVIDER_UNAVAILABLE.matcher(message).find()) {
+            return new SecretSpecFailure(Kind.PROVIDER_UNAVAILABLE, message, null);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the line starts an error reported by secretspec itself, as opposed to output of the program it runs
+     */
+    public static boolean isReportStart(@NotNull String line) {
+        return REPORT_START.matcher(line).find();
+    }
+
+    /**
+     * Whether the line continues the error report started on an earlier line
+     */
+    public static boolean isReportContinuation(@NotNull String line) {
+        return REPORT_CONTINUATION.matcher(line).find();
+    }
+
+    private static @Nullable String findSecretName(@NotNull String message) {
+        Matcher matcher = SECRET_NAME.matcher(message);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            if (name.contains("_") || matcher.group().length() > name.length()) {
+                return name; // Quoted or SNAKE_CASE, not just a capitalized word
+            }
+        }
+        return null;
+    }
+
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The secretspec output line, which never contains secret values
+     */
+    public @NotNull String getMessage() {
+        return message;
+    }
+
+    public @Nullable String getSecretName() {
+        return secretName;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + message;
+    }
+}
@@ -0,0 +1,276 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.Project;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.mask.SecretSpecMaskingService;
+import com.thesoulless.secretspecplugin.metrics.SecretSpecMetrics;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecAgentService;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecExecutable;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecResolver;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Launch patching shared by the run configuration adapters of all languages.
+ * Prefetched, cached or agent-resolved secrets are injected into the environment directly; only when none
+ * are available the command is wrapped with 'secretspec run', or resolved in the plugin where it can't be wrapped.
+ */
+public final class SecretSpecLaunchPatcher {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecLaunchPatcher.class);
+    public static final String FILE_FLAG = "--file";
+
+    /**
+     * How the secrets reached the launch
+     */
+    public enum Outcome {
+        PREFETCHED,
+        CACHED,
+        AGENT,
+        RESOLVED,
+        WRAPPED,
+        NOT_INJECTED
+    }
+
+    private SecretSpecLaunchPatcher() {
+    }
+
+    /**
+     * Patch a command line that may be wrapped with 'secretspec run' when the secrets aren't at hand.
+     * A wrapped command line without a working directory of its own is pinned to workingDirectory,
+     * so the wrapper finds the same secretspec.toml; otherwise the program's working directory is kept.
+     */
+    public static @NotNull Outcome patch(@NotNull GeneralCommandLine cmdLine, @NotNull String workingDirectory,
+                                         @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project) {
+        return patch(cmdLine, workingDirectory, settings, project, null);
+    }
+
+    /**
+     * Patch a command line, injecting only the secrets whose names are in usedNames when it is known.
+     * A wrapped command still receives every secret, secretspec run can't be told to leave some out.
+     */
+    public static @NotNull Outcome patch(@NotNull GeneralCommandLine cmdLine, @NotNull String workingDirectory,
+                                         @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project,
+                                         @Nullable Set<String> usedNames) {
+        long start = System.nanoTime();
+        try {
+            Outcome outcome = injectAvailableSecrets(cmdLine.getEnvironment(), workingDirectory, settings, project, usedNames);
+            if (outcome == null && !settings.isCacheSecrets()) {
+                outcome = injectAgentSecrets(cmdLine.getEnvironment(), workingDirectory, settings, project, usedNames);
+            }
+            if (outcome != null) {
+                return outcome;
+            }
+            // secretspec only reads the spec of its working directory unless it is told where the spec is
+            SecretSpecExecutable executable = SecretSpecExecutable.getInstance();
+            String specFile = executable.getProbedCapabilities().supportsRunFlag(FILE_FLAG) ?
+                    SecretSpecLocator.getInstance().findAncestorSpecPath(workingDirectory) : null;
+            // A provider that is failing or hanging is swapped for the fallback provider, if one is set
+            SecretSpecSettingsSnapshot wrapperSettings = SecretSpecResolver.getInstance().getWrapperSettings(workingDirectory, settings, project);
+            if (cmdLine.getWorkDirectory() == null) {
+                cmdLine.setWorkDirectory(new File(workingDirectory));
+            }
+            wrapCommandLine(cmdLine, wrapperSettings, executable.getCommand(), specFile);
+            return Outcome.WRAPPED;
+        } finally {
+            SecretSpecMetrics.getInstance().recordResolution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Inject secrets into a launch environment that can't be wrapped, such as JavaParameters or a process
+     * a debugger attaches to. On a miss the secrets are resolved now.
+     *
+     * @throws ExecutionException if the user cancelled the resolution, the launch is aborted then
+     */
+    public static @NotNull Outcome inject(@NotNull Map<String, String> environment, @NotNull String workingDirectory,
+                                          @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project) throws ExecutionException {
+        return inject(environment, workingDirectory, settings, project, null);
+    }
+
+    /**
+     * Inject secrets into a launch environment, only those whose names are in usedNames when it is known
+     */
+    public static @NotNull Outcome inject(@NotNull Map<String, String> environment, @NotNull String workingDirectory,
+                                          @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project,
+                                          @Nullable Set<String> usedNames) throws ExecutionException {
+        long start = System.nanoTime();
+        try {
+            Outcome outcome = injectAvailableSecrets(environment, workingDirectory, settings, project, usedNames);
+            if (outcome != null) {
+                return outcome;
+            }
+            SecretSpecCacheKey key = SecretSpecCacheKey.create(workingDirectory, settings, project);
+            try {
+                int injected = injectInto(environment, SecretSpecResolver.getInstance().resolve(key, settings, project), settings, project, usedNames);
+                recordInjected(workingDirectory, injected, "resolved");
+                return Outcome.RESOLVED;
+            } catch (ProcessCanceledException e) {
+                // Cancel on the resolution progress, don't start the program without its secrets
+                throw new ExecutionException("SecretSpec secret resolution was cancelled", e);
+            } catch (ExecutionException e) {
+                LOG.warn("Could not resolve SecretSpec secrets, the program has to load them itself: " + e.getMessage());
+                return Outcome.NOT_INJECTED;
+            }
+        } finally {
+            SecretSpecMetrics.getInstance().recordResolution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Use secrets from a prefetch or the cache
+     *
+     * @return how the secrets were injected, or null if none were at hand
+     */
+    private static @Nullable Outcome injectAvailableSecrets(@NotNull Map<String, String> environment, @NotNull String workingDirectory,
+                                                            @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project,
+                                                            @Nullable Set<String> usedNames) {
+        if (SecretSpecLocator.getInstance().findSpec(workingDirectory) == null) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PATCHED, workingDirectory,
+                    "secretspec.toml not found here or in a parent directory, secretspec may fail to load its configuration");
+        }
+        SecretSpecResolver resolver = SecretSpecResolver.getInstance();
+        SecretSpecCacheKey key = SecretSpecCacheKey.create(workingDirectory, settings, project);
+
+        // Secrets prefetched by a before launch task while the build was running
+        Map<String, String> prefetched = resolver.awaitPrefetched(key, settings, project);
+        if (prefetched != null) {
+            int injected = injectInto(environment, prefetched, settings, project, usedNames);
+            recordInjected(workingDirectory, injected, "prefetched");
+            return Outcome.PREFETCHED;
+        }
+
+        // Cached secrets, resolved once for all concurrent launches on a miss
+        if (settings.isCacheSecrets()) {
+            Map<String, String> cached = resolver.getCachedOrResolve(key, settings, project);
+            if (cached != null) {
+                int injected = injectInto(environment, cached, settings, project, usedNames);
+                recordInjected(workingDirectory, injected, "cached");
+                return Outcome.CACHED;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve secrets through the project's warm agent, before paying for a secretspec process. Goes through the
+     * scheduler like any other resolution, so it shares in-flight requests, the timeout, the circuit breaker and
+     * the fallback provider. With caching on, the cache miss already asked the agent.
+     *
+     * @return the outcome, or null if no agent is running or the resolution failed
+     */
+    private static @Nullable Outcome injectAgentSecrets(@NotNull Map<String, String> environment, @NotNull String workingDirectory,
+                                                        @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project,
+                                                        @Nullable Set<String> usedNames) {
+        if (project == null || !SecretSpecAgentService.getInstance(project).isAvailable()) {
+            return null;
+        }
+        SecretSpecCacheKey key = SecretSpecCacheKey.create(workingDirectory, settings, project);
+        try {
+            int injected = injectInto(environment, SecretSpecResolver.getInstance().resolve(key, settings, project), settings, project, usedNames);
+            recordInjected(workingDirectory, injected, "agent-resolved");
+            return Outcome.AGENT;
+        } catch (ExecutionException e) {
+            LOG.warn("SecretSpec agent resolution failed, wrapping the launch: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void recordInjected(@NotNull String workingDirectory, int count, @NotNull String source) {
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.INJECTED, workingDirectory,
+                "%d %s secrets", count, source);
+    }
+
+    /**
+     * @return the number of secrets injected
+     */
+    private static int injectInto(@NotNull Map<String, String> environment, @NotNull Map<String, String> secrets,
+                                  @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project,
+                                  @Nullable Set<String> usedNames) {
+        Map<String, String> injected = filterUsed(secrets, usedNames);
+        SecretSpecEnvironmentOverlay.inject(environment, injected);
+        SecretSpecMaskingService.registerIfEnabled(project, settings, injected);
+        return injected.size();
+    }
+
+    /**
+     * The secrets the program reads. If it reads none of them the analysis most likely missed how they
+     * are read, so all of them are kept.
+     */
+    static @NotNull Map<String, String> filterUsed(@NotNull Map<String, String> secrets, @Nullable Set<String> usedNames) {
+        if (usedNames == null) {
+            return secrets;
+        }
+        Map<String, String> used = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : secrets.entrySet()) {
+            if (usedNames.contains(entry.getKey())) {
+                used.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (used.isEmpty() && !secrets.isEmpty()) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.INJECTED, null,
+                    "none of the %d secrets are read by the program, injecting all of them", secrets.size());
+            return secrets;
+        }
+        return used;
+    }
+
+    /**
+     * Replace the command with 'secretspec run [--profile p] [--provider p] -- original command...'
+     */
+    public static void wrapCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecSettingsSnapshot settings) {
+        wrapCommandLine(cmdLine, settings, "secretspec", null);
+    }
+
+    /**
+     * Wrap the command with the given secretspec executable, normally the absolute path found by {@link SecretSpecExecutable},
+     * pointing it at the spec file when it doesn't live in the working directory
+     */
+    public static void wrapCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecSettingsSnapshot settings,
+                                       @NotNull String executable, @Nullable String specFile) {
+        // Store original command
+        String originalExePath = cmdLine.getExePath();
+        var originalParameters = cmdLine.getParametersList().getList().toArray(new String[0]);
+
+        // Replace with SecretSpec command
+        cmdLine.setExePath(executable);
+        cmdLine.getParametersList().clearAll();
+
+        // Add SecretSpec parameters
+        cmdLine.addParameter("run");
+
+        if (specFile != null) {
+            cmdLine.addParameter(FILE_FLAG);
+            cmdLine.addParameter(specFile);
+        }
+
+        if (settings.hasProfile()) {
+            cmdLine.addParameter("--profile");
+            cmdLine.addParameter(settings.getProfile());
+        }
+
+        if (settings.hasProvider()) {
+            cmdLine.addParameter("--provider");
+            cmdLine.addParameter(settings.getProvider());
+        }
+
+        cmdLine.addParameter("--");
+
+        // Add original command
+        cmdLine.addParameter(originalExePath);
+        cmdLine.addParameters(originalParameters);
+    }
+}
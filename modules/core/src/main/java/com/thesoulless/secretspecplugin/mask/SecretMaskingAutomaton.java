@@ -0,0 +1,147 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Immutable Aho-Corasick automaton over a set of secret values, compiled into a dense DFA.
+ * Characters that occur in no value share one class, so the transition table stays small
+ * and scanning costs one table lookup per character regardless of the number of values.
+ */
+public final class SecretMaskingAutomaton {
+
+    public static final SecretMaskingAutomaton EMPTY = new SecretMaskingAutomaton(new char[Character.MAX_VALUE + 1], 1,
+            new int[]{0}, new int[]{0}, new int[]{0}, 0);
+
+    private final char[] classes;   // char -> character class, 0 for characters in no value
+    private final int classCount;
+    private final int[] delta;      // state * classCount + class -> next state
+    private final int[] matchLength; // longest value ending in the state, 0 for none
+    private final int[] depth;      // length of the value prefix the state stands for
+    private final int valueCount;
+
+    private SecretMaskingAutomaton(char[] classes, int classCount, int[] delta, int[] matchLength, int[] depth, int valueCount) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.delta = delta;
+        this.matchLength = matchLength;
+        this.depth = depth;
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * Compile the automaton for the given values; empty values are ignored
+     */
+    public static @NotNull SecretMaskingAutomaton build(@NotNull Collection<String> values) {
+        char[] classes = new char[Character.MAX_VALUE + 1];
+        int classCount = 1;
+        int totalLength = 0;
+        int valueCount = 0;
+        for (String value : values) {
+            if (value.isEmpty()) {
+                continue;
+            }
+            valueCount++;
+            totalLength += value.length();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (classes[c] == 0) {
+                    classes[c] = (char) classCount++;
+                }
+            }
+        }
+        if (valueCount == 0) {
+            return EMPTY;
+        }
+
+        // Trie of all values, missing transitions are -1 until the failure links fill them in
+        int maxStates = totalLength + 1;
+        int[] delta = new int[maxStates * classCount];
+        Arrays.fill(delta, -1);
+        int[] matchLength = new int[maxStates];
+        int[] depth = new int[maxStates];
+        int states = 1;
+        for (String value : values) {
+            int state = 0;
+            for (int i = 0; i < value.length(); i++) {
+                int index = state * classCount + classes[value.charAt(i)];
+                if (delta[index] < 0) {
+                    depth[states] = i + 1;
+                    delta[index] = states++;
+                }
+                state = delta[index];
+            }
+            if (!value.isEmpty()) {
+                matchLength[state] = value.length();
+            }
+        }
+
+        // Breadth-first over the trie: route missing transitions along failure links, making it a DFA
+        int[] fail = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int next = delta[c];
+            if (next <= 0) {
+                delta[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matchLength[state] = Math.max(matchLength[state], matchLength[fail[state]]);
+            for (int c = 0; c < classCount; c++) {
+                int index = state * classCount + c;
+                int fallback = delta[fail[state] * classCount + c];
+                if (delta[index] < 0) {
+                    delta[index] = fallback;
+                } else {
+                    fail[delta[index]] = fallback;
+                    queue.add(delta[index]);
+                }
+            }
+        }
+
+        return new SecretMaskingAutomaton(classes, classCount, Arrays.copyOf(delta, states * classCount),
+                Arrays.copyOf(matchLength, states), Arrays.copyOf(depth, states), valueCount);
+    }
+
+    public boolean isEmpty() {
+        return valueCount == 0;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    public int getStateCount() {
+        return depth.length;
+    }
+
+    /**
+     * The state reached from the given state by reading the character
+     */
+    public int next(int state, char c) {
+        return delta[state * classCount + classes[c]];
+    }
+
+    /**
+     * Length of the longest value that ends when the automaton enters the state, 0 if none does
+     */
+    public int matchLength(int state) {
+        return matchLength[state];
+    }
+
+    /**
+     * Number of trailing characters the state has matched as a prefix of some value.
+     * A value occurrence not yet complete can only start within these characters.
+     */
+    public int depth(int state) {
+        return depth[state];
+    }
+}
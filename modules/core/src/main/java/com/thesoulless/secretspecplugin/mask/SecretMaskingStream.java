@@ -0,0 +1,124 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Masks secret values in a stream of text chunks in a single pass per chunk.
+ * The automaton state carries over between chunks, and the trailing characters that may still
+ * become part of a value are held back, so values split across chunk boundaries are masked too.
+ * Not thread-safe, use one instance per output stream.
+ */
+public final class SecretMaskingStream {
+
+    public static final String MASK = "******";
+
+    private final SecretMaskingAutomaton automaton;
+    private char[] buffer = new char[256];
+    private boolean[] masked = new boolean[256];
+    private int pending;
+    private int state;
+    private boolean emittedEndsMasked;
+
+    public SecretMaskingStream(@NotNull SecretMaskingAutomaton automaton) {
+        this.automaton = automaton;
+    }
+
+    public @NotNull SecretMaskingAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * Number of characters held back because they may be the start of a value split across chunks
+     */
+    public int getPendingLength() {
+        return pending;
+    }
+
+    /**
+     * Feed the next chunk and get the text that can be shown now.
+     *
+     * @return the masked text, which may be shorter than the chunk if its tail is held back,
+     * or null if the chunk can be shown unchanged
+     */
+    public @Nullable String process(@NotNull CharSequence chunk) {
+        if (chunk.length() == 0) {
+            return null;
+        }
+        if (automaton.isEmpty()) {
+            return pending == 0 ? null : flush() + chunk;
+        }
+
+        int start = pending;
+        int end = pending + chunk.length();
+        ensureCapacity(end);
+        boolean anyMasked = false;
+        for (int i = 0; i < start; i++) {
+            anyMasked |= masked[i];
+        }
+
+        int s = state;
+        for (int i = start; i < end; i++) {
+            char c = chunk.charAt(i - start);
+            buffer[i] = c;
+            masked[i] = false;
+            s = automaton.next(s, c);
+            int length = automaton.matchLength(s);
+            if (length > 0) {
+                Arrays.fill(masked, i - length + 1, i + 1, true);
+                anyMasked = true;
+            }
+        }
+        state = s;
+
+        int keep = automaton.depth(s);
+        if (!anyMasked && keep == 0 && start == 0) {
+            emittedEndsMasked = false;
+            return null; // Fast path: nothing matched and nothing is held back
+        }
+        return emit(end - keep, end);
+    }
+
+    /**
+     * Release the held back characters, e.g. when the stream ends or another stream takes over the console
+     */
+    public @NotNull String flush() {
+        String text = emit(pending, pending);
+        state = 0;
+        return text;
+    }
+
+    private @NotNull String emit(int emitEnd, int end) {
+        StringBuilder out = new StringBuilder(emitEnd + MASK.length());
+        boolean previousMasked = emittedEndsMasked;
+        for (int i = 0; i < emitEnd; i++) {
+            if (masked[i]) {
+                if (!previousMasked) {
+                    out.append(MASK);
+                }
+                previousMasked = true;
+            } else {
+                out.append(buffer[i]);
+                previousMasked = false;
+            }
+        }
+        if (emitEnd > 0) {
+            emittedEndsMasked = previousMasked;
+        }
+
+        pending = end - emitEnd;
+        System.arraycopy(buffer, emitEnd, buffer, 0, pending);
+        System.arraycopy(masked, emitEnd, masked, 0, pending);
+        return out.toString();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            int size = Math.max(capacity, buffer.length * 2);
+            buffer = Arrays.copyOf(buffer, size);
+            masked = Arrays.copyOf(masked, size);
+        }
+    }
+}
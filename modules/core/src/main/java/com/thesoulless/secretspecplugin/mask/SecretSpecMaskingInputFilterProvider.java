@@ -0,0 +1,86 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import com.intellij.execution.filters.ConsoleInputFilterProvider;
+import com.intellij.execution.filters.InputFilter;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Masks registered secret values in Run/Debug consoles before the text reaches the console
+ */
+public class SecretSpecMaskingInputFilterProvider implements ConsoleInputFilterProvider {
+
+    @Override
+    public InputFilter @NotNull [] getDefaultFilters(@NotNull Project project) {
+        return new InputFilter[]{new MaskingFilter(SecretSpecMaskingService.getInstance(project))};
+    }
+
+    /**
+     * One per console. Text of one content type may be held back until the next chunk;
+     * it is released when text of another content type arrives, such as the process termination message.
+     */
+    private static final class MaskingFilter implements InputFilter {
+
+        private final SecretSpecMaskingService service;
+        private SecretMaskingStream stream;
+        private ConsoleViewContentType streamType;
+
+        MaskingFilter(@NotNull SecretSpecMaskingService service) {
+            this.service = service;
+        }
+
+        @Override
+        public synchronized @Nullable List<Pair<String, ConsoleViewContentType>> applyFilter(@NotNull String text,
+                                                                                           @NotNull ConsoleViewContentType contentType) {
+            SecretMaskingAutomaton automaton = service.getAutomaton();
+            if (stream == null && automaton.isEmpty()) {
+                return null; // Nothing registered yet, leave the console untouched
+            }
+
+            List<Pair<String, ConsoleViewContentType>> result = null;
+            if (stream != null && (stream.getAutomaton() != automaton || !contentType.equals(streamType))) {
+                // Values changed or another stream takes over: release what the previous stream held back
+                String held = stream.flush();
+                if (!held.isEmpty()) {
+                    result = new ArrayList<>(2);
+                    result.add(Pair.create(held, streamType));
+                }
+                stream = null;
+            }
+            if (stream == null) {
+                if (automaton.isEmpty()) {
+                    return appendUnchanged(result, text, contentType);
+                }
+                stream = new SecretMaskingStream(automaton);
+                streamType = contentType;
+            }
+
+            String masked = stream.process(text);
+            if (masked == null) {
+                return appendUnchanged(result, text, contentType);
+            }
+            if (result == null) {
+                result = new ArrayList<>(1);
+            }
+            if (!masked.isEmpty()) {
+                result.add(Pair.create(masked, contentType));
+            }
+            return result;
+        }
+
+        private static @Nullable List<Pair<String, ConsoleViewContentType>> appendUnchanged(
+                @Nullable List<Pair<String, ConsoleViewContentType>> result, @NotNull String text, @NotNull ConsoleViewContentType contentType) {
+            if (result == null) {
+                return null;
+            }
+            result.add(Pair.create(text, contentType));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secret values injected into this project's launches, compiled into the automaton the console filter masks them with
+ */
+public class SecretSpecMaskingService {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecMaskingService.class);
+    // Shorter values such as "1" or "true" would mask ordinary output
+    private static final int MIN_VALUE_LENGTH = 4;
+    // Bounds the automaton's transition table
+    private static final int MAX_TOTAL_LENGTH = 32 * 1024;
+
+    // Access-ordered, so the values injected least recently are dropped first once the bound is reached
+    private final LinkedHashMap<String, Boolean> values = new LinkedHashMap<>(16, 0.75f, true);
+    private int totalLength;
+    private volatile SecretMaskingAutomaton automaton = SecretMaskingAutomaton.EMPTY;
+
+    public static @NotNull SecretSpecMaskingService getInstance(@NotNull Project project) {
+        return project.getService(SecretSpecMaskingService.class);
+    }
+
+    /**
+     * Register the secrets injected into a launch if its settings ask for masking
+     */
+    public static void registerIfEnabled(@Nullable Project project, @NotNull SecretSpecSettingsSnapshot settings,
+                                         @NotNull Map<String, String> secrets) {
+        if (project != null && !project.isDisposed() && settings.isMaskSecrets() && !secrets.isEmpty()) {
+            getInstance(project).register(secrets.values());
+        }
+    }
+
+    /**
+     * Add values to mask from now on. When the bound is reached, values of older launches and rotated
+     * values are dropped to make room; values registered in this call are never dropped. A value that
+     * doesn't fit next to the others of this call is shown unmasked, with a warning.
+     * The automaton is only rebuilt when a value is new.
+     */
+    public synchronized void register(@NotNull Iterable<String> secretValues) {
+        boolean changed = false;
+        // Values of this call, at the most recently used end of the map once they are known or added
+        Set<String> current = new HashSet<>();
+        int currentLength = 0;
+        for (String value : secretValues) {
+            if (value == null || value.length() < MIN_VALUE_LENGTH) {
+                continue;
+            }
+            if (values.get(value) != null) {
+                if (current.add(value)) {
+                    currentLength += value.length(); // Already known and now the most recently used
+                }
+                continue;
+            }
+            if (currentLength + value.length() > MAX_TOTAL_LENGTH) {
+                LOG.warn(value.length() > MAX_TOTAL_LENGTH ?
+                        "A SecretSpec secret value is too long to mask, it is shown unmasked" :
+                        "The secrets of a SecretSpec launch are too long to mask them all, a value is shown unmasked");
+                continue;
+            }
+            // Only values of earlier calls come before the current ones, and they are long enough to make room
+            Iterator<String> eldest = values.keySet().iterator();
+            while (totalLength + value.length() > MAX_TOTAL_LENGTH) {
+                totalLength -= eldest.next().length();
+                eldest.remove();
+            }
+            values.put(value, Boolean.TRUE);
+            totalLength += value.length();
+            current.add(value);
+            currentLength += value.length();
+            changed = true;
+        }
+        if (changed) {
+            automaton = SecretMaskingAutomaton.build(values.keySet());
+        }
+    }
+
+    /**
+     * Values currently masked, least recently injected first
+     */
+    synchronized @NotNull List<String> getValues() {
+        return new ArrayList<>(values.keySet());
+    }
+
+    /**
+     * Current automaton; a new instance is published whenever the values change
+     */
+    public @NotNull SecretMaskingAutomaton getAutomaton() {
+        return automaton;
+    }
+}
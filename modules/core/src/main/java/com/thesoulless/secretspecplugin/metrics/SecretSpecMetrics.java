@@ -0,0 +1,150 @@
+package com.thesoulless.secretspecplugin.metrics;
+
+import com.intellij.openapi.application.ApplicationManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Launch-latency metrics for SecretSpec: how long launches take from scheduled to started,
+ * how much of that is spent resolving secrets, provider latency, scheduler queueing and cache effectiveness
+ */
+public class SecretSpecMetrics {
+    
+    private static final int MAX_TRACKED_NAMES = 200;
+    private static final String DEFAULT_PROVIDER = "(default)";
+    
+    private final Map<String, LatencyHistogram> launchLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> providerLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> queueWait = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> peakQueueDepth = new ConcurrentHashMap<>();
+    private final LatencyHistogram resolutionLatency = new LatencyHistogram();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    
+    public static @NotNull SecretSpecMetrics getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecMetrics.class);
+    }
+    
+    /**
+     * Time from processStartScheduled to processStarted for a run configuration
+     */
+    public void recordLaunch(@NotNull String configurationName, long nanos) {
+        histogram(launchLatency, configurationName).recordNanos(nanos);
+    }
+    
+    /**
+     * Time a launch spent blocked in SecretSpec command line patching and secret resolution
+     */
+    public void recordResolution(long nanos) {
+        resolutionLatency.recordNanos(nanos);
+    }
+    
+    /**
+     * Time a single provider round-trip took, whether or not a launch was waiting for it
+     */
+    public void recordProviderCall(@NotNull String provider, long nanos) {
+        histogram(providerLatency, provider.isEmpty() ? DEFAULT_PROVIDER : provider).recordNanos(nanos);
+    }
+    
+    /**
+     * Time a resolution waited in a scheduler lane for a provider slot
+     */
+    public void recordQueueWait(@NotNull String lane, long nanos) {
+        histogram(queueWait, lane).recordNanos(nanos);
+    }
+    
+    /**
+     * Number of resolutions waiting in a scheduler lane, sampled whenever one is queued
+     */
+    public void recordQueueDepth(@NotNull String lane, int depth) {
+        peakQueueDepth.computeIfAbsent(lane, k -> new AtomicLong()).accumulateAndGet(depth, Math::max);
+    }
+    
+    /**
+     * Most resolutions waiting at once in the lane since the last reset
+     */
+    public long getPeakQueueDepth(@NotNull String lane) {
+        AtomicLong peak = peakQueueDepth.get(lane);
+        return peak != null ? peak.get() : 0;
+    }
+    
+    public void recordCacheHit() {
+        cacheHits.incrementAndGet();
+    }
+    
+    public void recordCacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+    
+    public @NotNull Map<String, LatencyHistogram> getLaunchLatency() {
+        return Collections.unmodifiableMap(new TreeMap<>(launchLatency));
+    }
+    
+    public @NotNull Map<String, LatencyHistogram> getProviderLatency() {
+        return Collections.unmodifiableMap(new TreeMap<>(providerLatency));
+    }
+    
+    public @NotNull LatencyHistogram getResolutionLatency() {
+        return resolutionLatency;
+    }
+    
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+    
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+    
+    /**
+     * All histograms in display order, labelled by what they measure
+     */
+    public @NotNull Map<String, LatencyHistogram> getAllHistograms() {
+        Map<String, LatencyHistogram> all = new LinkedHashMap<>();
+        all.put("Secret resolution (launch path)", resolutionLatency);
+        getProviderLatency().forEach((provider, histogram) -> all.put("Provider: " + provider, histogram));
+        new TreeMap<>(queueWait).forEach((lane, histogram) -> all.put("Queue wait: " + lane, histogram));
+        getLaunchLatency().forEach((configuration, histogram) -> all.put("Launch: " + configuration, histogram));
+        return all;
+    }
+    
+    public void reset() {
+        launchLatency.clear();
+        providerLatency.clear();
+        queueWait.clear();
+        peakQueueDepth.clear();
+        resolutionLatency.reset();
+        cacheHits.set(0);
+        cacheMisses.set(0);
+    }
+    
+    private static @NotNull LatencyHistogram histogram(@NotNull Map<String, LatencyHistogram> histograms, @NotNull String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        // Keep memory bounded when configurations are renamed a lot, without losing the stats of active ones
+        if (histograms.size() >= MAX_TRACKED_NAMES) {
+            evictLeastRecentlyUpdated(histograms);
+        }
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+    
+    private static void evictLeastRecentlyUpdated(@NotNull Map<String, LatencyHistogram> histograms) {
+        Map.Entry<String, LatencyHistogram> oldest = null;
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            if (oldest == null || entry.getValue().getLastUpdatedNanos() - oldest.getValue().getLastUpdatedNanos() < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            histograms.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.execution.ParametersListUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Long-lived secretspec helper process per project, so resolutions don't pay for process
+ * creation, spec parsing and provider authentication on every launch.
+ * <p>
+ * The agent command is taken from the {@code secretspec.agent.command} registry key and is
+ * started lazily, restarted when it dies and stopped when the project is closed. It talks a
+ * line-based protocol over stdin/stdout where every field is Base64 (UTF-8) encoded:
+ * <pre>
+ * request:  RESOLVE &lt;workingDirectory&gt; &lt;profile&gt; &lt;provider&gt;
+ * response: OK &lt;count&gt;, followed by count lines of &lt;name&gt; &lt;value&gt;
+ *           or ERR &lt;message&gt;
+ * </pre>
+ * Fields are separated by a single tab, and responses come in the order of the requests. Requests
+ * are pipelined: a reader thread hands each response to the request waiting for it, so a slow
+ * request doesn't block others from being sent, and a cancelled one just drops its response.
+ * Any local process speaking this protocol, including a stub script, can be used as the agent.
+ */
+public class SecretSpecAgentService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecAgentService.class);
+    static final String COMMAND_REGISTRY_KEY = "secretspec.agent.command";
+    static final String TIMEOUT_REGISTRY_KEY = "secretspec.agent.requestTimeoutSeconds";
+    private static final int DEFAULT_TIMEOUT_SECONDS = 30;
+    private static final long RESTART_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // How often a waiting request checks whether it was cancelled
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    private final Project project;
+    // Guarded by this
+    private Connection connection;
+    private long lastStartFailure;
+    private boolean disposed;
+
+    public SecretSpecAgentService(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static @NotNull SecretSpecAgentService getInstance(@NotNull Project project) {
+        return project.getService(SecretSpecAgentService.class);
+    }
+
+    /**
+     * Whether an agent command is configured and the agent is not in its restart back-off
+     */
+    public synchronized boolean isAvailable() {
+        return !disposed && !getCommand().isEmpty() &&
+                System.currentTimeMillis() - lastStartFailure > RESTART_BACKOFF_MILLIS;
+    }
+
+    /**
+     * Resolve secrets through the agent, starting or restarting it if needed. A request that reaches an
+     * agent which has just exited is sent once more to a restarted agent.
+     * Cancelling the calling thread's progress indicator stops the wait.
+     */
+    public @NotNull Map<String, String> resolve(@NotNull SecretSpecCacheKey key) throws ExecutionException {
+        String request = String.join("\t", "RESOLVE", encode(key.getWorkingDirectory()),
+                encode(key.getProfile()), encode(key.getProvider()));
+        try {
+            return request(request);
+        } catch (AgentExitedException e) {
+            LOG.info("SecretSpec agent exited before answering, restarting: " + e.getMessage());
+            return request(request);
+        }
+    }
+
+    private @NotNull Map<String, String> request(@NotNull String request) throws ExecutionException {
+        Connection current = getConnection();
+        CompletableFuture<Map<String, String>> response = current.send(request);
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, Registry.intValue(TIMEOUT_REGISTRY_KEY, DEFAULT_TIMEOUT_SECONDS)));
+        long start = System.nanoTime();
+        while (true) {
+            ProgressManager.checkCanceled();
+            try {
+                return response.get(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (System.nanoTime() - start >= timeoutNanos) {
+                    // The agent is stuck, later requests must not queue behind this one
+                    current.close("it did not answer within " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s");
+                    throw new ExecutionException("SecretSpec agent request timed out after " +
+                            TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutionException("Interrupted while waiting for the SecretSpec agent", e);
+            } catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof ExecutionException ? (ExecutionException) cause :
+                        new ExecutionException("SecretSpec agent request failed: " + cause.getMessage(), cause);
+            }
+        }
+    }
+
+    private synchronized @NotNull Connection getConnection() throws ExecutionException {
+        if (disposed || getCommand().isEmpty()) {
+            throw new ExecutionException("SecretSpec agent is not available");
+        }
+        if (connection != null && !connection.isClosed()) {
+            return connection;
+        }
+        if (System.currentTimeMillis() - lastStartFailure <= RESTART_BACKOFF_MILLIS) {
+            throw new ExecutionException("SecretSpec agent failed to start recently, not retrying yet");
+        }
+        if (connection != null) {
+            LOG.info("SecretSpec agent exited with code " + connection.getExitCode() + ", restarting");
+        }
+        List<String> command = ParametersListUtil.parse(getCommand());
+        GeneralCommandLine cmdLine = new GeneralCommandLine(command)
+                .withParentEnvironmentType(GeneralCommandLine.ParentEnvironmentType.CONSOLE)
+                .withCharset(StandardCharsets.UTF_8);
+        if (project.getBasePath() != null) {
+            cmdLine.setWorkDirectory(project.getBasePath());
+        }
+        Process process;
+        try {
+            process = cmdLine.createProcess();
+        } catch (ExecutionException e) {
+            lastStartFailure = System.currentTimeMillis();
+            connection = null;
+            throw e;
+        }
+        connection = new Connection(process);
+        LOG.info("Started SecretSpec agent for project " + project.getName());
+        return connection;
+    }
+
+    private static @NotNull String getCommand() {
+        return Registry.stringValue(COMMAND_REGISTRY_KEY).trim();
+    }
+
+    private static @NotNull String encode(@NotNull String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static @NotNull String decode(@NotNull String value) throws IOException {
+        try {
+            return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed agent field", e);
+        }
+    }
+
+    /**
+     * Read the rest of one response
+     *
+     * @throws ExecutionException for an ERR response, the agent stays usable
+     * @throws IOException for output that doesn't follow the protocol, after which responses can't be matched any more
+     */
+    static @NotNull Map<String, String> readResponse(@NotNull String header, @NotNull BufferedReader in) throws IOException, ExecutionException {
+        if (header.startsWith("ERR")) {
+            throw new ExecutionException("SecretSpec agent error: " + decode(header.substring(3).trim()));
+        }
+        if (!header.startsWith("OK ")) {
+            throw new IOException("Unexpected agent response: " + header);
+        }
+        int count;
+        try {
+            count = Integer.parseInt(header.substring(3).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected agent response: " + header);
+        }
+        Map<String, String> secrets = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("SecretSpec agent closed its output");
+            }
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                throw new IOException("Malformed agent secret line");
+            }
+            secrets.put(decode(line.substring(0, tab)), decode(line.substring(tab + 1)));
+        }
+        return secrets;
+    }
+
+    @Override
+    public void dispose() {
+        Connection current;
+        synchronized (this) {
+            disposed = true;
+            current = connection;
+            connection = null;
+        }
+        if (current != null) {
+            current.close("the project was closed");
+        }
+    }
+
+    /**
+     * One running agent process with its reader threads and the requests waiting for a response
+     */
+    private static final class Connection {
+        private final Process process;
+        private final Writer writer;
+        // Guarded by this, in the order the requests were written
+        private final Deque<CompletableFuture<Map<String, String>>> pending = new ArrayDeque<>();
+        private volatile boolean closed;
+
+        Connection(@NotNull Process process) {
+            this.process = process;
+            this.writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            AppExecutorUtil.getAppExecutorService().execute(() -> readResponses(output));
+            // An undrained stderr pipe fills up and blocks the agent. Its content may name secrets, so it isn't logged.
+            AppExecutorUtil.getAppExecutorService().execute(() -> drain(process.getErrorStream()));
+        }
+
+        boolean isClosed() {
+            return closed || !process.isAlive();
+        }
+
+        @NotNull String getExitCode() {
+            return process.isAlive() ? "none (stopped)" : String.valueOf(process.exitValue());
+        }
+
+        @NotNull CompletableFuture<Map<String, String>> send(@NotNull String request) throws ExecutionException {
+            CompletableFuture<Map<String, String>> response = new CompletableFuture<>();
+            synchronized (this) {
+                if (closed) {
+                    throw new AgentExitedException("the connection is closed");
+                }
+                pending.add(response);
+                try {
+                    writer.write(request);
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    pending.remove(response);
+                    close(e.getMessage());
+                    throw new AgentExitedException(String.valueOf(e.getMessage()));
+                }
+            }
+            return response;
+        }
+
+        private void readResponses(@NotNull BufferedReader output) {
+            String reason = "it closed its output";
+            try {
+                String header;
+                while ((header = output.readLine()) != null) {
+                    CompletableFuture<Map<String, String>> response;
+                    synchronized (this) {
+                        response = pending.poll();
+                    }
+                    if (response == null) {
+                        reason = "it wrote output nobody asked for";
+                        break;
+                    }
+                    try {
+                        response.complete(readResponse(header, output));
+                    } catch (ExecutionException e) {
+                        response.completeExceptionally(e);
+                    } catch (IOException e) {
+                        response.completeExceptionally(new ExecutionException("SecretSpec agent request failed: " + e.getMessage(), e));
+                        reason = "its response could not be read: " + e.getMessage();
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                reason = "its output could not be read: " + e.getMessage();
+            }
+            close(reason);
+        }
+
+        private static void drain(@NotNull InputStream errors) {
+            byte[] buffer = new byte[4096];
+            try {
+                while (errors.read(buffer) >= 0) {
+                    // Discarded
+                }
+            } catch (IOException ignored) {
+                // The agent is gone
+            }
+        }
+
+        /**
+         * Stop the agent and fail the requests still waiting, they are retried by a restarted agent
+         */
+        void close(@NotNull String reason) {
+            List<CompletableFuture<Map<String, String>>> failed;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                failed = new ArrayList<>(pending);
+                pending.clear();
+            }
+            process.destroy();
+            for (CompletableFuture<Map<String, String>> response : failed) {
+                response.completeExceptionally(new AgentExitedException(reason));
+            }
+        }
+    }
+
+    /**
+     * The agent went away before it answered a request, which may be retried by a restarted agent
+     */
+    private static final class AgentExitedException extends ExecutionException {
+        AgentExitedException(@NotNull String reason) {
+            super("SecretSpec agent stopped: " + reason);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import com.thesoulless.secretspecplugin.spec.SecretSpecProjectIndex;
+import com.thesoulless.secretspecplugin.spec.SecretSpecTomlParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Objects;
+
+/**
+ * Identifies one set of resolved secrets: the directory secretspec runs in, profile, provider and spec contents.
+ * secretspec runs in the directory of the spec that applies to the launch, so launches in different directories
+ * sharing an ancestor spec share one resolution. A dotenv provider with a relative path reads its file relative to
+ * the launch directory, so such keys keep the launch directory instead.
+ */
+public final class SecretSpecCacheKey {
+
+    private static final String NO_SPEC = "none";
+
+    private final String workingDirectory;
+    private final String profile;
+    private final String provider;
+    private final String specHash;
+    // Not part of the identity, only needed to build the key of another provider
+    private final String launchDirectory;
+    private final String specDirectory;
+
+    public SecretSpecCacheKey(@NotNull String workingDirectory, @NotNull String profile,
+                              @NotNull String provider, @NotNull String specHash) {
+        this(workingDirectory, profile, provider, specHash, workingDirectory, workingDirectory);
+    }
+
+    private SecretSpecCacheKey(@NotNull String workingDirectory, @NotNull String profile, @NotNull String provider,
+                               @NotNull String specHash, @NotNull String launchDirectory, @NotNull String specDirectory) {
+        this.workingDirectory = workingDirectory;
+        this.profile = profile;
+        this.provider = provider;
+        this.specHash = specHash;
+        this.launchDirectory = launchDirectory;
+        this.specDirectory = specDirectory;
+    }
+
+    /**
+     * Build a key for the given working directory and run settings, finding and hashing the spec on disk
+     */
+    public static @NotNull SecretSpecCacheKey create(@NotNull String workingDirectory, @NotNull SecretSpecSettingsSnapshot settings) {
+        return create(workingDirectory, settings, null);
+    }
+
+    /**
+     * Build a key for the given working directory and run settings.
+     * With a project the spec is found by the locator and hashed by the secretspec.toml index instead of the disk.
+     */
+    public static @NotNull SecretSpecCacheKey create(@NotNull String workingDirectory, @NotNull SecretSpecSettingsSnapshot settings,
+                                                     @Nullable Project project) {
+        String specHash = NO_SPEC;
+        String specDirectory = workingDirectory;
+        if (project != null) {
+            VirtualFile spec = SecretSpecLocator.getInstance().findSpec(workingDirectory);
+            SecretSpecFileInfo info = spec != null ? SecretSpecProjectIndex.getInstance(project).getInfo(spec) : null;
+            if (info != null && spec.getParent() != null) {
+                specHash = info.getContentHash();
+                specDirectory = FileUtil.toSystemDependentName(spec.getParent().getPath());
+            }
+        } else {
+            File spec = findSpecFile(new File(workingDirectory));
+            if (spec != null) {
+                specHash = hashSpec(spec);
+                specDirectory = spec.getParent();
+            }
+        }
+        String provider = settings.getProvider();
+        return new SecretSpecCacheKey(readsRelativeFiles(provider) ? workingDirectory : specDirectory,
+                settings.getProfile(), provider, specHash, workingDirectory, specDirectory);
+    }
+
+    /**
+     * Whether the provider reads a file relative to the directory secretspec runs in, i.e. a dotenv
+     * provider without a path or with a relative one
+     */
+    static boolean readsRelativeFiles(@NotNull String provider) {
+        if (!"dotenv".equals(SecretSpecSettingsSnapshot.getProviderScheme(provider))) {
+            return false;
+        }
+        String path = StringUtil.trimStart(StringUtil.trimStart(provider, "dotenv"), ":");
+        path = StringUtil.trimStart(path, "//");
+        return path.isEmpty() || !FileUtil.isAbsolute(path);
+    }
+
+    private static @Nullable File findSpecFile(@NotNull File directory) {
+        for (File current = directory.getAbsoluteFile(); current != null; current = current.getParentFile()) {
+            File spec = new File(current, SecretSpecFileInfo.FILE_NAME);
+            if (spec.isFile()) {
+                return spec;
+            }
+        }
+        return null;
+    }
+
+    private static @NotNull String hashSpec(@NotNull File specFile) {
+        if (!specFile.isFile()) {
+            return NO_SPEC;
+        }
+        try {
+            return SecretSpecTomlParser.hash(Files.readAllBytes(specFile.toPath()));
+        } catch (IOException e) {
+            return NO_SPEC;
+        }
+    }
+
+    public @NotNull String getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    public @NotNull String getProfile() {
+        return profile;
+    }
+
+    public @NotNull String getProvider() {
+        return provider;
+    }
+
+    public @NotNull String getSpecHash() {
+        return specHash;
+    }
+
+    /**
+     * The same secrets resolved from another provider, e.g. the fallback provider
+     */
+    public @NotNull SecretSpecCacheKey withProvider(@NotNull String provider) {
+        return new SecretSpecCacheKey(readsRelativeFiles(provider) ? launchDirectory : specDirectory,
+                profile, provider, specHash, launchDirectory, specDirectory);
+    }
+
+    /**
+     * Whether the working directory is the directory or lies below it
+     */
+    public boolean isUnder(@NotNull String directory) {
+        return FileUtil.isAncestor(FileUtil.toSystemIndependentName(directory),
+                FileUtil.toSystemIndependentName(workingDirectory), false);
+    }
+
+    /**
+     * Whether a launch in the directory may use these secrets: the working directory is the directory or above it
+     */
+    public boolean appliesTo(@NotNull String directory) {
+        return FileUtil.isAncestor(FileUtil.toSystemIndependentName(workingDirectory),
+                FileUtil.toSystemIndependentName(directory), false);
+    }
+
+    public boolean hasProfile() {
+        return !profile.isEmpty();
+    }
+
+    public boolean hasProvider() {
+        return !provider.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SecretSpecCacheKey)) return false;
+        SecretSpecCacheKey that = (SecretSpecCacheKey) o;
+        return workingDirectory.equals(that.workingDirectory) &&
+                profile.equals(that.profile) &&
+                provider.equals(that.provider) &&
+                specHash.equals(that.specHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(workingDirectory, profile, provider, specHash);
+    }
+
+    @Override
+    public String toString() {
+        return "SecretSpecCacheKey{" +
+                "workingDirectory='" + workingDirectory + '\'' +
+                ", profile='" + profile + '\'' +
+                ", provider='" + provider + '\'' +
+                ", specHash='" + specHash + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.registry.Registry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a provider after a number of consecutive failures or timeouts. While the circuit is open,
+ * launches skip the provider at once; after the cooldown one call is let through, and its outcome either
+ * closes the circuit or opens it for another cooldown.
+ */
+public class SecretSpecCircuitBreaker {
+
+    public static final String FAILURE_THRESHOLD_KEY = "secretspec.circuitBreaker.failureThreshold";
+    public static final String COOLDOWN_SECONDS_KEY = "secretspec.circuitBreaker.cooldownSeconds";
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final int DEFAULT_COOLDOWN_SECONDS = 60;
+
+    // Provider -> its failure count and open period, replaced atomically
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    public static @NotNull SecretSpecCircuitBreaker getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecCircuitBreaker.class);
+    }
+
+    /**
+     * Whether the provider may be called now. Once the cooldown has passed this lets one trial call
+     * through and holds back the others for another cooldown, until the trial has reported its outcome.
+     */
+    public boolean tryAcquire(@NotNull String provider) {
+        long now = System.nanoTime();
+        State state = states.get(provider);
+        while (state != null && state.isOpen()) {
+            if (now - state.openUntil < 0) {
+                return false;
+            }
+            State trial = new State(state.failures, now + getCooldownNanos());
+            if (states.replace(provider, state, trial)) {
+                return true;
+            }
+            state = states.get(provider);
+        }
+        return true;
+    }
+
+    /**
+     * Whether the provider would be called now, without taking the trial call of a half-open circuit
+     */
+    public boolean isAvailable(@NotNull String provider) {
+        State state = states.get(provider);
+        return state == null || !state.isOpen() || System.nanoTime() - state.openUntil >= 0;
+    }
+
+    /**
+     * Seconds until the provider is tried again, 0 when its circuit is closed
+     */
+    public long getRemainingCooldownSeconds(@NotNull String provider) {
+        State state = states.get(provider);
+        if (state == null || !state.isOpen()) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(state.openUntil - System.nanoTime()));
+    }
+
+    public void recordSuccess(@NotNull String provider) {
+        states.remove(provider);
+    }
+
+    /**
+     * Count a failure or timeout of the provider
+     *
+     * @return true if this failure opened the circuit
+     */
+    public boolean recordFailure(@NotNull String provider) {
+        int threshold = Math.max(1, Registry.intValue(FAILURE_THRESHOLD_KEY, DEFAULT_FAILURE_THRESHOLD));
+        while (true) {
+            State state = states.get(provider);
+            int failures = state != null ? state.failures + 1 : 1;
+            boolean open = failures >= threshold;
+            State next = new State(failures, open ? System.nanoTime() + getCooldownNanos() : 0);
+            if (state == null ? states.putIfAbsent(provider, next) == null : states.replace(provider, state, next)) {
+                // A failed trial call re-opens the circuit without a new notification
+                return open && (state == null || !state.isOpen());
+            }
+        }
+    }
+
+    private static long getCooldownNanos() {
+        return TimeUnit.SECONDS.toNanos(Math.max(1, Registry.intValue(COOLDOWN_SECONDS_KEY, DEFAULT_COOLDOWN_SECONDS)));
+    }
+
+    private static final class State {
+        final int failures;
+        // System.nanoTime() the circuit stays open until, 0 while it is closed
+        final long openUntil;
+
+        State(int failures, long openUntil) {
+            this.failures = failures;
+            this.openUntil = openUntil;
+        }
+
+        boolean isOpen() {
+            return openUntil != 0;
+        }
+    }
+}
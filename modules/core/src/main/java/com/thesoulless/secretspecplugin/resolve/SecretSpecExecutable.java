@@ -0,0 +1,246 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.configurations.PathEnvironmentVariableUtil;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.util.EnvironmentUtil;
+import com.thesoulless.secretspecplugin.store.SecretSpecMetadataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the secretspec binary once and probes which subcommands and flags it supports.
+ * The location is looked up again when PATH changes, or a few seconds after a miss so a binary installed
+ * while the IDE runs is picked up, and the probe is repeated when the binary's modification time changes,
+ * e.g. after an upgrade. Both are kept in {@link SecretSpecMetadataStore}, so after
+ * a restart the binary is neither searched for nor probed again while PATH and the binary are unchanged.
+ */
+public class SecretSpecExecutable {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecExecutable.class);
+    private static final String NAME = "secretspec";
+    private static final int PROBE_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(5);
+    // A missing binary is searched for again after this long, PATH may stay the same while it is installed
+    private static final long MISS_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final Pattern VERSION = Pattern.compile("(\\d+\\.\\d+(\\.\\d+)?([-+][\\w.]+)?)");
+    private static final Pattern FLAG = Pattern.compile("(?<![\\w-])(--[a-z][a-z0-9-]*)");
+    private static final Pattern SUBCOMMAND = Pattern.compile("^\\s{2,}([a-z][a-z0-9-]*)\\s{2,}\\S");
+
+    private volatile Location location;
+
+    public static @NotNull SecretSpecExecutable getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecExecutable.class);
+    }
+
+    /**
+     * Command to launch secretspec with: the absolute path when the binary was found, otherwise its name
+     * so the OS reports the failure
+     */
+    public @NotNull String getCommand() {
+        Location current = locate();
+        return current != null ? current.file.getAbsolutePath() : NAME;
+    }
+
+    /**
+     * The located binary, or null if it is not on PATH. Costs a file stat when PATH hasn't changed,
+     * a miss is remembered for a few seconds only.
+     */
+    public @Nullable Location locate() {
+        String path = Objects.requireNonNullElse(EnvironmentUtil.getValue("PATH"), "");
+        Location current = location;
+        if (current != null && current.path.equals(path) && (current.file != null ? current.isUnchanged() : !current.isMissExpired())) {
+            return current.file != null ? current : null;
+        }
+        SecretSpecMetadataStore store = SecretSpecMetadataStore.getInstance();
+        String persisted = store.getExecutablePath(path);
+        File file = persisted != null && new File(persisted).isFile() ? new File(persisted) : null;
+        if (file == null) {
+            file = PathEnvironmentVariableUtil.findInPath(SystemInfo.isWindows ? NAME + ".exe" : NAME, path, null);
+            if (file != null) {
+                LOG.info("Found secretspec at " + file.getPath());
+                store.putExecutablePath(path, file.getPath());
+            } else if (current == null || current.file != null || !current.path.equals(path)) {
+                LOG.info("secretspec not found in PATH"); // Once, not on every re-check
+            }
+        }
+        current = new Location(path, file);
+        location = current;
+        return file != null ? current : null;
+    }
+
+    /**
+     * Capabilities of the located binary, probing it on first use. Runs processes, so call it off the EDT.
+     */
+    public @NotNull Capabilities getCapabilities() {
+        Location current = locate();
+        return current != null ? current.getCapabilities() : Capabilities.UNKNOWN;
+    }
+
+    /**
+     * Capabilities if the binary has been probed already, without running it. Safe to call on the EDT.
+     */
+    public @NotNull Capabilities getProbedCapabilities() {
+        Location current = locate();
+        Capabilities probed = current != null ? current.getKnownCapabilities() : null;
+        return probed != null ? probed : Capabilities.UNKNOWN;
+    }
+
+    /**
+     * A located binary together with its lazily probed capabilities
+     */
+    public static final class Location {
+        private final String path;
+        private final File file;
+        private final long lastModified;
+        private final long lookedUpAt = System.nanoTime();
+        private volatile Capabilities capabilities;
+
+        private Location(@NotNull String path, @Nullable File file) {
+            this.path = path;
+            this.file = file;
+            this.lastModified = file != null ? file.lastModified() : 0;
+        }
+
+        private boolean isUnchanged() {
+            return file.lastModified() == lastModified;
+        }
+
+        private boolean isMissExpired() {
+            return System.nanoTime() - lookedUpAt > MISS_RECHECK_NANOS;
+        }
+
+        public @NotNull File getFile() {
+            return file;
+        }
+
+        private @NotNull Capabilities getCapabilities() {
+            Capabilities probed = getKnownCapabilities();
+            if (probed == null) {
+                synchronized (this) {
+                    probed = capabilities;
+                    if (probed == null) {
+                        probed = probe(file);
+                        capabilities = probed;
+                        if (probed != Capabilities.UNKNOWN) {
+                            SecretSpecMetadataStore.getInstance().putProbe(file.getPath(), new SecretSpecMetadataStore.Probe(
+                                    lastModified, probed.getVersion(), probed.subcommands, probed.runFlags));
+                        }
+                    }
+                }
+            }
+            return probed;
+        }
+
+        /**
+         * Capabilities probed in this session or persisted by an earlier one, without running the binary
+         */
+        private @Nullable Capabilities getKnownCapabilities() {
+            Capabilities known = capabilities;
+            if (known == null && file != null) {
+                SecretSpecMetadataStore.Probe persisted = SecretSpecMetadataStore.getInstance().getProbe(file.getPath(), lastModified);
+                if (persisted != null) {
+                    known = new Capabilities(persisted.getVersion(), persisted.getSubcommands(), persisted.getRunFlags());
+                    capabilities = known;
+                }
+            }
+            return known;
+        }
+    }
+
+    private static @NotNull Capabilities probe(@NotNull File file) {
+        try {
+            String version = findVersion(run(file, "--version"));
+            Set<String> subcommands = new LinkedHashSet<>();
+            for (String line : run(file, "--help").split("\\R")) {
+                Matcher matcher = SUBCOMMAND.matcher(line);
+                if (matcher.find()) {
+                    subcommands.add(matcher.group(1));
+                }
+            }
+            Set<String> runFlags = new LinkedHashSet<>();
+            Matcher matcher = FLAG.matcher(run(file, "run", "--help"));
+            while (matcher.find()) {
+                runFlags.add(matcher.group(1));
+            }
+            Capabilities capabilities = new Capabilities(version, subcommands, runFlags);
+            LOG.info("Probed " + file.getPath() + ": " + capabilities);
+            return capabilities;
+        } catch (ExecutionException e) {
+            LOG.warn("Could not probe " + file.getPath() + ": " + e.getMessage());
+            return Capabilities.UNKNOWN;
+        }
+    }
+
+    private static @NotNull String run(@NotNull File file, @NotNull String... parameters) throws ExecutionException {
+        GeneralCommandLine cmdLine = new GeneralCommandLine(file.getAbsolutePath())
+                .withParameters(parameters)
+                .withParentEnvironmentType(GeneralCommandLine.ParentEnvironmentType.CONSOLE)
+                .withCharset(StandardCharsets.UTF_8);
+        ProcessOutput output = new CapturingProcessHandler(cmdLine).runProcess(PROBE_TIMEOUT_MILLIS);
+        if (output.isTimeout()) {
+            throw new ExecutionException(cmdLine.getCommandLineString() + " timed out");
+        }
+        // Some versions print help to stderr
+        return output.getStdout() + "\n" + output.getStderr();
+    }
+
+    private static @Nullable String findVersion(@NotNull String output) {
+        Matcher matcher = VERSION.matcher(output);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * What the installed secretspec supports, as far as its help output tells
+     */
+    public static final class Capabilities {
+        /**
+         * Used when the binary is missing or could not be probed; every feature is assumed to be missing
+         */
+        public static final Capabilities UNKNOWN = new Capabilities(null, Collections.emptySet(), Collections.emptySet());
+
+        private final String version;
+        private final Set<String> subcommands;
+        private final Set<String> runFlags;
+
+        Capabilities(@Nullable String version, @NotNull Set<String> subcommands, @NotNull Set<String> runFlags) {
+            this.version = version;
+            this.subcommands = Collections.unmodifiableSet(subcommands);
+            this.runFlags = Collections.unmodifiableSet(runFlags);
+        }
+
+        public @Nullable String getVersion() {
+            return version;
+        }
+
+        public boolean hasSubcommand(@NotNull String name) {
+            return subcommands.contains(name);
+        }
+
+        /**
+         * Whether 'secretspec run' accepts the flag, e.g. "--file"
+         */
+        public boolean supportsRunFlag(@NotNull String flag) {
+            return runFlags.contains(flag);
+        }
+
+        @Override
+        public String toString() {
+            return "version " + (version != null ? version : "unknown") + ", subcommands " + subcommands + ", run flags " + runFlags;
+        }
+    }
+}
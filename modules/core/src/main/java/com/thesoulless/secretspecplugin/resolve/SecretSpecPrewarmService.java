@@ -0,0 +1,143 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.configurations.RunConfigurationBase;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves secrets of selected or enabled run configurations in the background,
+ * so the cache is already warm when the user presses Run. Resolutions run in the scheduler's pre-warm lane,
+ * behind launches and refreshes.
+ */
+public class SecretSpecPrewarmService implements Disposable {
+
+    private static final int MAX_CONCURRENT_PREWARMS = 2;
+
+    private final Project project;
+    private final ExecutorService executor =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("SecretSpec Prewarm", MAX_CONCURRENT_PREWARMS);
+    private final Map<String, Future<?>> pending = new ConcurrentHashMap<>();
+    private final Map<String, SecretSpecScheduler.Job<?>> resolutions = new ConcurrentHashMap<>();
+
+    public SecretSpecPrewarmService(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static @NotNull SecretSpecPrewarmService getInstance(@NotNull Project project) {
+        return project.getService(SecretSpecPrewarmService.class);
+    }
+
+    /**
+     * Pre-warm the selected configuration, cancelling pre-warms of previously selected ones that haven't finished
+     */
+    public void prewarmSelected(@NotNull RunConfiguration configuration) {
+        String id = getId(configuration);
+        pending.entrySet().removeIf(entry -> {
+            if (!entry.getKey().equals(id)) {
+                entry.getValue().cancel(true);
+                return true;
+            }
+            return false;
+        });
+        // Queued resolutions are dropped; one a launch has joined keeps running
+        resolutions.entrySet().removeIf(entry -> !entry.getKey().equals(id) && entry.getValue().cancel(true));
+        prewarm(configuration);
+    }
+
+    /**
+     * Pre-warm every given configuration, e.g. all configurations of a freshly opened project
+     */
+    public void prewarmAll(@NotNull Collection<? extends RunConfiguration> configurations) {
+        for (RunConfiguration configuration : configurations) {
+            prewarm(configuration);
+        }
+    }
+
+    /**
+     * Queue a background resolution for the configuration if it uses cached secrets and the cache is cold,
+     * unless the circuit breaker is skipping its provider
+     */
+    public void prewarm(@NotNull RunConfiguration configuration) {
+        if (!(configuration instanceof RunConfigurationBase)) {
+            return;
+        }
+        SecretSpecRunSettings runSettings = SecretSpecRunConfigurationExtensionBase.getSettings((RunConfigurationBase<?>) configuration);
+        if (runSettings == null) {
+            return;
+        }
+        SecretSpecSettingsSnapshot settings = runSettings.snapshot();
+        if (!settings.isEnabled() || !settings.isCacheSecrets()) {
+            return;
+        }
+        if (!SecretSpecCircuitBreaker.getInstance().isAvailable(settings.getProvider())) {
+            return; // The provider is being skipped after repeated failures, a pre-warm must not call it anyway
+        }
+
+        String id = getId(configuration);
+        Future<?> existing = pending.get(id);
+        SecretSpecScheduler.Job<?> resolving = resolutions.get(id);
+        if (existing != null && !existing.isDone() || resolving != null && !resolving.isDone()) {
+            return; // Already queued or running
+        }
+        pending.values().removeIf(Future::isDone);
+        pending.put(id, executor.submit(() -> {
+            String workingDirectory = SecretSpecWorkingDirectoryProvider.find(configuration);
+            if (workingDirectory == null || project.isDisposed()) {
+                return;
+            }
+            SecretSpecCacheKey key = SecretSpecCacheKey.create(workingDirectory, settings, project);
+            // Secrets persisted by the previous session make the first launch as fast as a warm one
+            SecretSpecResolver.getInstance().restorePersisted(key);
+            if (SecretSpecSecretCache.getInstance().get(key) != null) {
+                return; // Already warm
+            }
+            if (!SecretSpecCircuitBreaker.getInstance().isAvailable(key.getProvider())) {
+                return; // The circuit opened while this pre-warm was queued
+            }
+            SecretSpecScheduler.Job<Map<String, String>> job =
+                    SecretSpecResolver.getInstance().resolveAsync(key, project, SecretSpecScheduler.Priority.PREWARM);
+            if (job.getPriority() == SecretSpecScheduler.Priority.PREWARM) {
+                resolutions.put(id, job); // Not a resolution this pre-warm merely joined
+            }
+            job.whenComplete((secrets, error) -> {
+                resolutions.remove(id, job);
+                if (error == null) {
+                    SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PREFETCH, configuration.getName(),
+                            "pre-warmed %d secrets", secrets.size());
+                } else if (!(error instanceof CancellationException)) {
+                    SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PREFETCH, configuration.getName(),
+                            "pre-warm failed: %s", error.getMessage());
+                }
+            });
+        }));
+    }
+
+    private static @NotNull String getId(@NotNull RunConfiguration configuration) {
+        return configuration.getType().getId() + ":" + configuration.getName();
+    }
+
+    @Override
+    public void dispose() {
+        pending.values().forEach(future -> future.cancel(true));
+        pending.clear();
+        resolutions.values().forEach(job -> job.cancel(true));
+        resolutions.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,619 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.util.EnvironmentUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.thesoulless.secretspecplugin.common.SecretSpecNotifications;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import com.thesoulless.secretspecplugin.metrics.SecretSpecMetrics;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import com.thesoulless.secretspecplugin.store.SecretSpecMetadataStore;
+import com.thesoulless.secretspecplugin.store.SecretSpecValueStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Resolves secrets in-process by running secretspec once and capturing the environment it produces
+ */
+public class SecretSpecResolver {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecResolver.class);
+    // Hard limit of one secretspec process; a launch stops waiting earlier, after the configured timeout
+    private static final int PROCESS_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(SecretSpecRunSettings.MAX_RESOLVE_TIMEOUT_SECONDS);
+    // How long a finished prefetch waits for its launch before the secrets are dropped
+    private static final long PREFETCH_CLAIM_MINUTES = 5;
+
+    // Resolutions in flight, shared by every request for the same key (e.g. members of a compound launch)
+    private final Map<SecretSpecCacheKey, SecretSpecScheduler.Job<Map<String, String>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<SecretSpecCacheKey, SecretSpecScheduler.Job<Map<String, String>>> prefetches = new ConcurrentHashMap<>();
+    // Running resolutions a launch has given up on, already counted as a failure by the circuit breaker
+    private final Set<SecretSpecScheduler.Job<Map<String, String>>> timedOut = ConcurrentHashMap.newKeySet();
+    private final Set<SecretSpecCacheKey> revalidating = ConcurrentHashMap.newKeySet();
+    // Keys already looked up in the value store this session
+    private final Set<SecretSpecCacheKey> restored = ConcurrentHashMap.newKeySet();
+
+    public static @NotNull SecretSpecResolver getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecResolver.class);
+    }
+
+    /**
+     * Get cached secrets for a launch.
+     * On a cache miss the secrets are resolved once for all concurrent launches with the same key.
+     *
+     * @return the secrets, or null if they could not be resolved and the caller has to fall back to the wrapper
+     */
+    public @Nullable Map<String, String> getCachedOrResolve(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                            @Nullable Project project) {
+        Map<String, String> secrets = getCached(key, settings, project);
+        if (secrets != null) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CACHE, key.getWorkingDirectory(), "hit");
+            return secrets;
+        }
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CACHE, key.getWorkingDirectory(), "miss");
+        try {
+            return resolveWithFallback(key, settings, project);
+        } catch (ExecutionException e) {
+            LOG.warn("SecretSpec resolution failed, falling back to wrapper: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get fresh cached secrets, or with stale-while-revalidate enabled, expired ones within the
+     * configured staleness bound while a background refresh updates them
+     */
+    public @Nullable Map<String, String> getCached(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                   @Nullable Project project) {
+        SecretSpecSecretCache cache = SecretSpecSecretCache.getInstance();
+        Map<String, String> secrets = cache.get(key);
+        if (secrets == null && restorePersisted(key)) {
+            secrets = cache.get(key);
+        }
+        if (secrets == null && settings.isStaleWhileRevalidate()) {
+            secrets = cache.getStale(key, TimeUnit.MINUTES.toMillis(settings.getMaxStaleMinutes()));
+            if (secrets != null) {
+                SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CACHE, key.getWorkingDirectory(),
+                        "stale hit, %d min old, revalidating", TimeUnit.MILLISECONDS.toMinutes(cache.getAgeMillis(key)));
+                revalidateInBackground(key, secrets, project);
+            }
+        }
+        if (secrets != null) {
+            SecretSpecMetrics.getInstance().recordCacheHit();
+        } else {
+            SecretSpecMetrics.getInstance().recordCacheMiss();
+        }
+        return secrets;
+    }
+
+    /**
+     * Refresh stale secrets in the background and tell the user if they changed or could not be refreshed
+     */
+    private void revalidateInBackground(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> stale, @Nullable Project project) {
+        if (!SecretSpecCircuitBreaker.getInstance().isAvailable(key.getProvider()) || !revalidating.add(key)) {
+            return; // Provider is being skipped or the secrets are already being refreshed
+        }
+        resolveAsync(key, project, SecretSpecScheduler.Priority.REFRESH).whenComplete((fresh, error) -> {
+            revalidating.remove(key);
+            if (error != null) {
+                String message = unwrap(error).getMessage();
+                LOG.warn("SecretSpec revalidation failed: " + message);
+                SecretSpecNotifications.notify(project, "SecretSpec refresh failed",
+                        "The launch used cached secrets that could not be refreshed: " + message, NotificationType.WARNING);
+                return;
+            }
+            Set<String> changed = getChangedNames(stale, fresh);
+            if (!changed.isEmpty()) {
+                SecretSpecNotifications.notify(project, "SecretSpec secrets changed",
+                        "The last launch used outdated values for " + String.join(", ", changed) +
+                                ". Restart it to pick up the refreshed secrets.", NotificationType.INFORMATION);
+            }
+        });
+    }
+
+    /**
+     * Load secrets persisted by an earlier session into the cache, once per key and only when
+     * persisting values is enabled
+     *
+     * @return true if secrets were restored, possibly already expired
+     */
+    public boolean restorePersisted(@NotNull SecretSpecCacheKey key) {
+        if (!Registry.is(SecretSpecValueStore.REGISTRY_KEY, false) || !restored.add(key)) {
+            return false;
+        }
+        SecretSpecValueStore.Stored stored = SecretSpecValueStore.getInstance().load(key);
+        if (stored == null) {
+            return false;
+        }
+        SecretSpecSecretCache.getInstance().restore(key, stored.getSecrets(), stored.getResolvedAt());
+        return true;
+    }
+
+    /**
+     * Write resolved secrets through to the value store when persisting values is enabled
+     */
+    private void persist(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets) {
+        if (!Registry.is(SecretSpecValueStore.REGISTRY_KEY, false)) {
+            return;
+        }
+        long resolvedAt = System.currentTimeMillis();
+        // PasswordSafe may have to talk to the OS keychain
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            SecretSpecValueStore.getInstance().save(key, secrets, resolvedAt);
+            SecretSpecMetadataStore.getInstance().addValueKey(key);
+        });
+    }
+
+    private static @NotNull Set<String> getChangedNames(@NotNull Map<String, String> before, @NotNull Map<String, String> after) {
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String name : before.keySet()) {
+            if (!after.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Resolve secrets asynchronously for a launch. Concurrent requests for the same key share one future,
+     * so one provider round-trip serves all of them.
+     */
+    public @NotNull SecretSpecScheduler.Job<Map<String, String>> resolveAsync(@NotNull SecretSpecCacheKey key, @Nullable Project project) {
+        return resolveAsync(key, project, SecretSpecScheduler.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Resolve secrets asynchronously in the scheduler lane of the given priority. Joining a resolution of a
+     * lower lane promotes it, so a launch never waits behind background work for the same secrets.
+     */
+    public @NotNull SecretSpecScheduler.Job<Map<String, String>> resolveAsync(@NotNull SecretSpecCacheKey key, @Nullable Project project,
+                                                                             @NotNull SecretSpecScheduler.Priority priority) {
+        SecretSpecScheduler.Job<Map<String, String>> existing = inFlight.get(key);
+        if (existing == null || existing.isDone()) {
+            Ref<SecretSpecScheduler.Job<Map<String, String>>> created = new Ref<>();
+            existing = inFlight.compute(key, (k, current) -> {
+                if (current != null && !current.isDone()) {
+                    return current;
+                }
+                created.set(SecretSpecScheduler.getInstance().submit(key.getProvider(), priority, () -> doResolve(key, project)));
+                return created.get();
+            });
+            if (existing == created.get()) {
+                SecretSpecScheduler.Job<Map<String, String>> job = created.get();
+                job.whenComplete((secrets, error) -> {
+                    inFlight.remove(key, job);
+                    reportOutcome(key.getProvider(), job, error, project);
+                });
+                return job;
+            }
+        }
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CACHE, key.getWorkingDirectory(),
+                "joined in-flight %s resolution", existing.getPriority().getDisplayName());
+        existing.promote(priority);
+        return existing;
+    }
+
+    /**
+     * Tell the circuit breaker how a provider call went. A call a launch already gave up on was counted when it timed out.
+     */
+    private void reportOutcome(@NotNull String provider, @NotNull SecretSpecScheduler.Job<Map<String, String>> job,
+                               @Nullable Throwable error, @Nullable Project project) {
+        boolean counted = timedOut.remove(job);
+        SecretSpecCircuitBreaker breaker = SecretSpecCircuitBreaker.getInstance();
+        if (error == null) {
+            breaker.recordSuccess(provider);
+        } else if (!counted && !(unwrap(error) instanceof CancellationException)) {
+            reportFailure(provider, project);
+        }
+    }
+
+    private static void reportFailure(@NotNull String provider, @Nullable Project project) {
+        SecretSpecCircuitBreaker breaker = SecretSpecCircuitBreaker.getInstance();
+        if (breaker.recordFailure(provider)) {
+            long cooldown = breaker.getRemainingCooldownSeconds(provider);
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CIRCUIT, null,
+                    "provider %s opened, skipped for %d s", getDisplayName(provider), cooldown);
+            SecretSpecNotifications.notify(project, "SecretSpec provider unavailable",
+                    "Provider " + getDisplayName(provider) + " failed repeatedly and is skipped for " + cooldown +
+                            " s. Launches use the fallback provider if one is set.", NotificationType.WARNING);
+        }
+    }
+
+    private static @NotNull String getDisplayName(@NotNull String provider) {
+        return provider.isEmpty() ? "'default'" : "'" + provider + "'";
+    }
+
+    /**
+     * Resolve secrets for a launch from the configured provider, or from the fallback provider when the
+     * primary one times out, fails or is skipped by its circuit breaker
+     */
+    private @NotNull Map<String, String> resolveWithFallback(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                             @Nullable Project project) throws ExecutionException {
+        ExecutionException failure;
+        try {
+            return resolveWithin(key, settings, project);
+        } catch (ExecutionException e) {
+            failure = e;
+        }
+        if (!settings.hasFallbackProvider()) {
+            throw failure;
+        }
+        SecretSpecCacheKey fallbackKey = key.withProvider(settings.getFallbackProvider());
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.FALLBACK, key.getWorkingDirectory(),
+                "%s: %s, using provider %s", getDisplayName(key.getProvider()), failure.getMessage(),
+                getDisplayName(fallbackKey.getProvider()));
+        Map<String, String> cached = SecretSpecSecretCache.getInstance().get(fallbackKey);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return resolveWithin(fallbackKey, settings, project);
+        } catch (ExecutionException e) {
+            throw new ExecutionException(failure.getMessage() + "; fallback provider " +
+                    getDisplayName(fallbackKey.getProvider()) + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolve secrets from the key's provider, waiting at most the configured timeout. A provider whose circuit
+     * is open, or whose call for these secrets a launch already gave up on, fails at once instead.
+     */
+    private @NotNull Map<String, String> resolveWithin(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                       @Nullable Project project) throws ExecutionException {
+        SecretSpecCircuitBreaker breaker = SecretSpecCircuitBreaker.getInstance();
+        if (!breaker.tryAcquire(key.getProvider())) {
+            throw new ExecutionException("provider " + getDisplayName(key.getProvider()) + " is skipped after repeated failures for another " +
+                    breaker.getRemainingCooldownSeconds(key.getProvider()) + " s");
+        }
+        SecretSpecScheduler.Job<Map<String, String>> job = resolveAsync(key, project);
+        if (timedOut.contains(job)) {
+            throw new ExecutionException("provider " + getDisplayName(key.getProvider()) + " is still resolving after a timeout");
+        }
+        return awaitWithin(job, key, settings, project);
+    }
+
+    /**
+     * Wait for a resolution for at most the configured timeout, counting a timeout as a failure of the provider
+     */
+    private @NotNull Map<String, String> awaitWithin(@NotNull SecretSpecScheduler.Job<Map<String, String>> job, @NotNull SecretSpecCacheKey key,
+                                                     @NotNull SecretSpecSettingsSnapshot settings, @Nullable Project project) throws ExecutionException {
+        long timeoutMillis = Math.min(PROCESS_TIMEOUT_MILLIS, TimeUnit.SECONDS.toMillis(settings.getResolveTimeoutSeconds()));
+        try {
+            return await(job, project, timeoutMillis);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException && !job.isDone() && timedOut.add(job)) {
+                if (job.isDone()) {
+                    timedOut.remove(job); // Completed meanwhile and reported its own outcome
+                } else {
+                    reportFailure(key.getProvider(), project);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Settings for wrapping a launch with 'secretspec run': the fallback provider replaces the configured one while
+     * that one is skipped by its circuit breaker, or is still busy with a resolution a launch gave up on
+     */
+    public @NotNull SecretSpecSettingsSnapshot getWrapperSettings(@NotNull String workingDirectory, @NotNull SecretSpecSettingsSnapshot settings,
+                                                                  @Nullable Project project) {
+        if (!settings.hasFallbackProvider()) {
+            return settings;
+        }
+        boolean available = SecretSpecCircuitBreaker.getInstance().isAvailable(settings.getProvider());
+        if (available) {
+            SecretSpecScheduler.Job<Map<String, String>> running = inFlight.get(SecretSpecCacheKey.create(workingDirectory, settings, project));
+            if (running == null || !timedOut.contains(running)) {
+                return settings;
+            }
+        }
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.FALLBACK, workingDirectory,
+                "wrapping with provider %s, %s is %s", getDisplayName(settings.getFallbackProvider()),
+                getDisplayName(settings.getProvider()), available ? "still resolving after a timeout" : "skipped after repeated failures");
+        return settings.withProvider(settings.getFallbackProvider());
+    }
+
+    /**
+     * Start resolving secrets for a launch that has just been scheduled, so the provider
+     * round-trip overlaps with the build. The result is handed over by {@link #awaitPrefetched}.
+     * A finished prefetch is replaced, and dropped if no launch takes it over within a few minutes,
+     * so a failed build never leaves secrets behind for a much later launch. A provider skipped by its
+     * circuit breaker is not prefetched from, the launch then resolves from the fallback provider.
+     */
+    public void prefetch(@NotNull SecretSpecCacheKey key, @Nullable Project project) {
+        if (!SecretSpecCircuitBreaker.getInstance().tryAcquire(key.getProvider())) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PREFETCH, key.getWorkingDirectory(),
+                    "skipped, provider %s is unavailable", getDisplayName(key.getProvider()));
+            return;
+        }
+        Ref<SecretSpecScheduler.Job<Map<String, String>>> created = new Ref<>();
+        prefetches.compute(key, (k, current) -> {
+            if (current != null && !current.isDone()) {
+                return current;
+            }
+            created.set(resolveAsync(k, project));
+            return created.get();
+        });
+        SecretSpecScheduler.Job<Map<String, String>> job = created.get();
+        if (job != null) {
+            job.whenComplete((secrets, error) -> AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                    () -> prefetches.remove(key, job), PREFETCH_CLAIM_MINUTES, TimeUnit.MINUTES));
+        }
+    }
+
+    /**
+     * Drop the prefetch of a launch that won't start, e.g. because its build failed or it was cancelled
+     */
+    public void discardPrefetch(@NotNull SecretSpecCacheKey key) {
+        if (prefetches.remove(key) != null) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PREFETCH, key.getWorkingDirectory(),
+                    "discarded, the launch did not start");
+        }
+    }
+
+    /**
+     * Take over the result of a prefetch started for the key, waiting for it if it is still in flight,
+     * for at most the configured timeout
+     *
+     * @return the prefetched secrets, or null if there was no prefetch or it failed
+     */
+    public @Nullable Map<String, String> awaitPrefetched(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                         @Nullable Project project) {
+        SecretSpecScheduler.Job<Map<String, String>> prefetch = prefetches.remove(key);
+        if (prefetch == null) {
+            return null;
+        }
+        try {
+            return awaitWithin(prefetch, key, settings, project);
+        } catch (ExecutionException e) {
+            LOG.warn("Prefetched SecretSpec resolution failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Drop cached and in-flight secrets matching the predicate, e.g. after the spec or a dotenv file changed
+     */
+    public void invalidate(@NotNull Predicate<SecretSpecCacheKey> predicate) {
+        int evicted = SecretSpecSecretCache.getInstance().invalidateIf(predicate);
+        // Running resolutions may have read the old files - later requests must start a new one
+        inFlight.keySet().removeIf(predicate);
+        prefetches.keySet().removeIf(predicate);
+        restored.removeIf(predicate);
+        List<SecretSpecCacheKey> persisted = SecretSpecMetadataStore.getInstance().removeValueKeys(predicate);
+        if (!persisted.isEmpty()) {
+            AppExecutorUtil.getAppExecutorService().execute(() -> persisted.forEach(SecretSpecValueStore.getInstance()::remove));
+        }
+        if (evicted > 0) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.CACHE, null,
+                    "evicted %d cached resolutions", evicted);
+        }
+    }
+
+    /**
+     * Get secrets from a prefetch, the cache or resolve them now.
+     * When called on the EDT the resolution runs on a background thread under a modal progress.
+     */
+    public @NotNull Map<String, String> getOrResolve(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                     @Nullable Project project) throws ExecutionException {
+        Map<String, String> secrets = awaitPrefetched(key, settings, project);
+        if (secrets != null) {
+            return secrets;
+        }
+        secrets = getCached(key, settings, project);
+        if (secrets != null) {
+            return secrets;
+        }
+        return resolveWithFallback(key, settings, project);
+    }
+
+    /**
+     * Resolve secrets synchronously for a launch within the configured timeout, from the fallback provider
+     * if the configured one is slow or unavailable
+     */
+    public @NotNull Map<String, String> resolve(@NotNull SecretSpecCacheKey key, @NotNull SecretSpecSettingsSnapshot settings,
+                                                @Nullable Project project) throws ExecutionException {
+        return resolveWithFallback(key, settings, project);
+    }
+
+    /**
+     * Wait for a resolution. On the EDT the wait happens under a cancellable modal progress.
+     */
+    private @NotNull Map<String, String> await(@NotNull CompletableFuture<Map<String, String>> future, @Nullable Project project,
+                                               long timeoutMillis) throws ExecutionException {
+        ThrowableComputable<Map<String, String>, ExecutionException> wait = () -> {
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutionException("Interrupted while resolving SecretSpec secrets", e);
+            } catch (TimeoutException e) {
+                throw new ExecutionException("SecretSpec resolution timed out after " + timeoutMillis + " ms", e);
+            } catch (CancellationException e) {
+                throw new ExecutionException("SecretSpec resolution was cancelled", e);
+            } catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = unwrap(e);
+                throw cause instanceof ExecutionException ? (ExecutionException) cause : new ExecutionException(cause);
+            }
+        };
+        if (!future.isDone() && ApplicationManager.getApplication().isDispatchThread()) {
+            return ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                    wait, "Resolving SecretSpec Secrets", true, project);
+        }
+        return wait.compute();
+    }
+
+    private static @NotNull Throwable unwrap(@NotNull Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof java.util.concurrent.ExecutionException) &&
+                cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Resolve secrets and store them in the cache. The project's agent is preferred when one is
+     * available, otherwise secretspec is run directly. Runs on a pooled thread.
+     */
+    private @NotNull Map<String, String> doResolve(@NotNull SecretSpecCacheKey key, @Nullable Project project) throws ExecutionException {
+        Map<String, String> secrets = project != null ? resolveWithAgent(key, project) : null;
+        if (secrets == null) {
+            SecretSpecExecutable executable = SecretSpecExecutable.getInstance();
+            if (executable.locate() == null) {
+                throw new ExecutionException("secretspec was not found in PATH");
+            }
+            long generation = SecretSpecSecretCache.getInstance().getGeneration();
+            long start = System.nanoTime();
+            try {
+                String specFile = executable.getCapabilities().supportsRunFlag(SecretSpecLaunchPatcher.FILE_FLAG) ?
+                        SecretSpecLocator.getInstance().findAncestorSpecPath(key.getWorkingDirectory()) : null;
+                secrets = runSecretSpec(executable.getCommand(), key, specFile);
+            } finally {
+                SecretSpecMetrics.getInstance().recordProviderCall(key.getProvider(), System.nanoTime() - start);
+            }
+            SecretSpecSecretCache.getInstance().put(key, secrets, generation);
+            persist(key, secrets);
+        }
+        return secrets;
+    }
+
+    /**
+     * Resolve secrets through the project's warm agent and store them in the cache. Only called from
+     * doResolve, so agent requests run in the scheduler like any other resolution.
+     *
+     * @return the secrets, or null if no agent is available or the request failed
+     */
+    private @Nullable Map<String, String> resolveWithAgent(@NotNull SecretSpecCacheKey key, @NotNull Project project) {
+        SecretSpecAgentService agent = SecretSpecAgentService.getInstance(project);
+        if (!agent.isAvailable()) {
+            return null;
+        }
+        try {
+            long generation = SecretSpecSecretCache.getInstance().getGeneration();
+            long start = System.nanoTime();
+            Map<String, String> secrets;
+            try {
+                secrets = agent.resolve(key);
+            } finally {
+                SecretSpecMetrics.getInstance().recordProviderCall(key.getProvider(), System.nanoTime() - start);
+            }
+            SecretSpecSecretCache.getInstance().put(key, secrets, generation);
+            persist(key, secrets);
+            return secrets;
+        } catch (ExecutionException e) {
+            LOG.warn("SecretSpec agent resolution failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Resolve the secrets with one 'secretspec run' process that prints its environment
+     */
+    static @NotNull Map<String, String> runSecretSpec(@NotNull String executable, @NotNull SecretSpecCacheKey key) throws ExecutionException {
+        return runSecretSpec(executable, key, null);
+    }
+
+    /**
+     * Resolve the secrets with one 'secretspec run' process, pointed at a spec outside the working directory if given
+     */
+    static @NotNull Map<String, String> runSecretSpec(@NotNull String executable, @NotNull SecretSpecCacheKey key,
+                                                      @Nullable String specFile) throws ExecutionException {
+        GeneralCommandLine cmdLine = new GeneralCommandLine(executable)
+                .withWorkDirectory(key.getWorkingDirectory())
+                .withParentEnvironmentType(GeneralCommandLine.ParentEnvironmentType.CONSOLE)
+                .withCharset(StandardCharsets.UTF_8);
+        cmdLine.addParameter("run");
+        if (specFile != null) {
+            cmdLine.addParameters(SecretSpecLaunchPatcher.FILE_FLAG, specFile);
+        }
+        if (key.hasProfile()) {
+            cmdLine.addParameters("--profile", key.getProfile());
+        }
+        if (key.hasProvider()) {
+            cmdLine.addParameters("--provider", key.getProvider());
+        }
+        cmdLine.addParameter("--");
+
+        // Print the environment secretspec hands to its child process
+        if (SystemInfo.isWindows) {
+            cmdLine.addParameters("cmd", "/c", "set");
+        } else {
+            cmdLine.addParameters("env", "-0");
+        }
+
+        // Under the scheduler the call can be cancelled or pre-empted, which kills the process
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        CapturingProcessHandler handler = new CapturingProcessHandler(cmdLine);
+        ProcessOutput output = indicator != null ?
+                handler.runProcessWithProgressIndicator(indicator, PROCESS_TIMEOUT_MILLIS) : handler.runProcess(PROCESS_TIMEOUT_MILLIS);
+        if (output.isCancelled()) {
+            throw new ProcessCanceledException();
+        }
+        if (output.isTimeout()) {
+            throw new ExecutionException("secretspec timed out after " + PROCESS_TIMEOUT_MILLIS + " ms");
+        }
+        if (output.getExitCode() != 0) {
+            throw new ExecutionException("secretspec exited with code " + output.getExitCode() + ": " + output.getStderr().trim());
+        }
+        return extractSecrets(output.getStdout(), EnvironmentUtil.getEnvironmentMap());
+    }
+
+    /**
+     * Keep only the variables that secretspec added or changed compared to the parent environment
+     */
+    static @NotNull Map<String, String> extractSecrets(@NotNull String environmentDump, @NotNull Map<String, String> parentEnvironment) {
+        String separator = environmentDump.indexOf('\0') >= 0 ? "\0" : "\\R";
+        Map<String, String> secrets = new LinkedHashMap<>();
+        for (String entry : environmentDump.split(separator)) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                continue; // Empty line or Windows drive entry such as "=C:=C:\"
+            }
+            String name = entry.substring(0, eq);
+            String value = entry.substring(eq + 1);
+            if (!Objects.equals(parentEnvironment.get(name), value)) {
+                secrets.put(name, value);
+            }
+        }
+        return secrets;
+    }
+}
@@ -0,0 +1,295 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.thesoulless.secretspecplugin.metrics.SecretSpecMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs secret resolutions with at most a configured number of concurrent calls per provider.
+ * Queued work starts in priority order, so a launch goes ahead of refreshes and pre-warms. When every slot of a
+ * provider is taken by background work, a launch pre-empts the lowest-priority call, which is queued again.
+ */
+public class SecretSpecScheduler implements Disposable {
+
+    public static final String MAX_CONCURRENT_KEY = "secretspec.scheduler.maxConcurrentPerProvider";
+    private static final int DEFAULT_MAX_CONCURRENT = 2;
+
+    /**
+     * Lanes in the order queued work is started
+     */
+    public enum Priority {
+        INTERACTIVE,
+        REFRESH,
+        PREWARM;
+
+        public @NotNull String getDisplayName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    // Provider -> its queued and running jobs, guarded by this
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private volatile boolean disposed;
+
+    public static @NotNull SecretSpecScheduler getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecScheduler.class);
+    }
+
+    /**
+     * Queue work against a provider. The returned job can be cancelled, which removes it from the queue or
+     * cancels its progress indicator while it runs, and promoted when a more urgent caller joins it.
+     */
+    public <T> @NotNull Job<T> submit(@NotNull String provider, @NotNull Priority priority, @NotNull Callable<T> work) {
+        Job<T> job = new Job<>(this, provider, priority, sequence.getAndIncrement(), work);
+        synchronized (this) {
+            if (disposed) {
+                job.completeExceptionally(new CancellationException("SecretSpec scheduler is disposed"));
+                return job;
+            }
+            lanes.computeIfAbsent(provider, k -> new Lane()).queued.add(job);
+            SecretSpecMetrics.getInstance().recordQueueDepth(priority.getDisplayName(), getQueueDepth(priority));
+            dispatch(provider);
+        }
+        return job;
+    }
+
+    /**
+     * Number of jobs of the priority waiting for a slot, over all providers
+     */
+    public synchronized int getQueueDepth(@NotNull Priority priority) {
+        int depth = 0;
+        for (Lane lane : lanes.values()) {
+            for (Job<?> job : lane.queued) {
+                if (job.priority == priority) {
+                    depth++;
+                }
+            }
+        }
+        return depth;
+    }
+
+    private static int getMaxConcurrent() {
+        return Math.max(1, Registry.intValue(MAX_CONCURRENT_KEY, DEFAULT_MAX_CONCURRENT));
+    }
+
+    /**
+     * Start queued jobs of the provider while it has free slots, pre-empting background work for launches
+     */
+    private synchronized void dispatch(@NotNull String provider) {
+        Lane lane = lanes.get(provider);
+        if (lane == null) {
+            return;
+        }
+        int maxConcurrent = getMaxConcurrent();
+        while (!lane.queued.isEmpty()) {
+            Job<?> next = lane.queued.peek();
+            if (lane.running.size() >= maxConcurrent) {
+                Job<?> victim = next.priority == Priority.INTERACTIVE ? lane.findPreemptable() : null;
+                if (victim == null) {
+                    break;
+                }
+                // The victim leaves the running set now and is queued again once its call has stopped
+                lane.running.remove(victim);
+                victim.preempt();
+            }
+            lane.queued.poll();
+            lane.running.add(next);
+            next.start();
+        }
+        if (lane.queued.isEmpty() && lane.running.isEmpty()) {
+            lanes.remove(provider);
+        }
+    }
+
+    private synchronized void finished(@NotNull Job<?> job, boolean requeue) {
+        Lane lane = lanes.computeIfAbsent(job.provider, k -> new Lane());
+        lane.running.remove(job);
+        if (requeue && !disposed) {
+            lane.queued.add(job);
+        }
+        dispatch(job.provider);
+    }
+
+    private synchronized boolean dequeue(@NotNull Job<?> job) {
+        Lane lane = lanes.get(job.provider);
+        return lane != null && lane.queued.remove(job);
+    }
+
+    private synchronized void reprioritize(@NotNull Job<?> job, @NotNull Priority priority) {
+        Lane lane = lanes.get(job.provider);
+        if (lane != null && lane.queued.remove(job)) {
+            job.priority = priority;
+            lane.queued.add(job);
+            dispatch(job.provider);
+        } else {
+            job.priority = priority;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        List<Job<?>> jobs = new ArrayList<>();
+        synchronized (this) {
+            disposed = true;
+            for (Lane lane : lanes.values()) {
+                jobs.addAll(lane.queued);
+                jobs.addAll(lane.running);
+            }
+            lanes.clear();
+        }
+        jobs.forEach(job -> job.cancel(true));
+    }
+
+    private static final class Lane {
+        final PriorityQueue<Job<?>> queued = new PriorityQueue<>(
+                Comparator.<Job<?>, Priority>comparing(job -> job.priority).thenComparingLong(job -> job.sequence));
+        final List<Job<?>> running = new ArrayList<>();
+
+        /**
+         * The running background job that was started last in the lowest lane, if any
+         */
+        @Nullable Job<?> findPreemptable() {
+            Job<?> victim = null;
+            for (Job<?> job : running) {
+                if (job.priority != Priority.INTERACTIVE && (victim == null || job.priority.compareTo(victim.priority) > 0 ||
+                        job.priority == victim.priority && job.sequence > victim.sequence)) {
+                    victim = job;
+                }
+            }
+            return victim;
+        }
+    }
+
+    /**
+     * A unit of resolution work and its result
+     */
+    public static final class Job<T> extends CompletableFuture<T> {
+        private final SecretSpecScheduler scheduler;
+        private final String provider;
+        private final long sequence;
+        private final Callable<T> work;
+        private final long queuedAt = System.nanoTime();
+        private volatile Priority priority;
+        private volatile ProgressIndicator indicator;
+        private volatile boolean preempted;
+        private volatile boolean promoted;
+
+        private Job(@NotNull SecretSpecScheduler scheduler, @NotNull String provider, @NotNull Priority priority,
+                    long sequence, @NotNull Callable<T> work) {
+            this.scheduler = scheduler;
+            this.provider = provider;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        public @NotNull Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Raise the job to a more urgent lane, e.g. when a launch joins a pre-warm of the same secrets
+         */
+        public void promote(@NotNull Priority to) {
+            if (to.compareTo(priority) < 0) {
+                promoted = true;
+                scheduler.reprioritize(this, to);
+            }
+        }
+
+        /**
+         * Cancel the job unless a launch or another, more urgent caller depends on it
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if ((priority == Priority.INTERACTIVE || promoted) && !scheduler.disposed) {
+                return false;
+            }
+            if (!scheduler.dequeue(this)) {
+                ProgressIndicator running = indicator;
+                if (running != null) {
+                    running.cancel();
+                }
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        private void start() {
+            SecretSpecMetrics.getInstance().recordQueueWait(priority.getDisplayName(), System.nanoTime() - queuedAt);
+            ProgressIndicator started = new EmptyProgressIndicator();
+            indicator = started;
+            preempted = false;
+            AppExecutorUtil.getAppExecutorService().execute(() -> run(started));
+        }
+
+        private void preempt() {
+            preempted = true;
+            ProgressIndicator running = indicator;
+            if (running != null) {
+                running.cancel();
+            }
+        }
+
+        private void run(@NotNull ProgressIndicator started) {
+            boolean requeue = false;
+            try {
+                if (isDone()) {
+                    return; // Cancelled before it started
+                }
+                T result = ProgressManager.getInstance().runProcess(() -> {
+                    try {
+                        return work.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new WrappedException(e);
+                    }
+                }, started);
+                complete(result);
+            } catch (ProcessCanceledException e) {
+                if (preempted && !isDone()) {
+                    requeue = true;
+                } else {
+                    completeExceptionally(new CancellationException("SecretSpec resolution was cancelled"));
+                }
+            } catch (WrappedException e) {
+                completeExceptionally(e.getCause());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                indicator = null;
+                // A pre-empted job has already given up its slot
+                if (!preempted || requeue) {
+                    scheduler.finished(this, requeue);
+                }
+            }
+        }
+    }
+
+    private static final class WrappedException extends RuntimeException {
+        WrappedException(@NotNull Exception cause) {
+            super(cause);
+        }
+    }
+}
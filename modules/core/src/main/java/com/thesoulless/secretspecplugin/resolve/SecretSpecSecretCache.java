@@ -0,0 +1,162 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.application.ApplicationManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, TTL-based in-memory cache of resolved secrets shared by all run configurations
+ */
+public class SecretSpecSecretCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 32;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // Expired entries are kept this long for stale-while-revalidate
+    private static final long MAX_STALE_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<SecretSpecCacheKey, Entry> entries;
+    private long generation;
+
+    public SecretSpecSecretCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    public SecretSpecSecretCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // Access-ordered so the least recently used entry is evicted first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SecretSpecCacheKey, Entry> eldest) {
+                return size() > SecretSpecSecretCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static @NotNull SecretSpecSecretCache getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecSecretCache.class);
+    }
+
+    /**
+     * Get the secrets cached for the key, or null when missing or expired
+     */
+    public synchronized @Nullable Map<String, String> get(@NotNull SecretSpecCacheKey key) {
+        Entry entry = getEntry(key);
+        if (entry == null || System.currentTimeMillis() - entry.resolvedAt > ttlMillis) {
+            return null;
+        }
+        return entry.secrets;
+    }
+
+    /**
+     * Get the secrets cached for the key even if they expired at most maxStaleMillis ago
+     */
+    public synchronized @Nullable Map<String, String> getStale(@NotNull SecretSpecCacheKey key, long maxStaleMillis) {
+        Entry entry = getEntry(key);
+        if (entry == null || System.currentTimeMillis() - entry.resolvedAt > ttlMillis + maxStaleMillis) {
+            return null;
+        }
+        return entry.secrets;
+    }
+
+    /**
+     * Age of the cached secrets in milliseconds, or -1 if nothing is cached for the key
+     */
+    public synchronized long getAgeMillis(@NotNull SecretSpecCacheKey key) {
+        Entry entry = entries.get(key);
+        return entry != null ? System.currentTimeMillis() - entry.resolvedAt : -1;
+    }
+
+    private @Nullable Entry getEntry(@NotNull SecretSpecCacheKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.resolvedAt > ttlMillis + MAX_STALE_RETENTION_MILLIS) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized void put(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets) {
+        entries.put(key, new Entry(Collections.unmodifiableMap(new LinkedHashMap<>(secrets)), System.currentTimeMillis()));
+    }
+
+    /**
+     * Put back secrets resolved at the given time, e.g. by an earlier IDE session, unless newer ones are cached
+     */
+    public synchronized void restore(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets, long resolvedAt) {
+        Entry existing = entries.get(key);
+        if (existing == null || existing.resolvedAt < resolvedAt) {
+            entries.put(key, new Entry(Collections.unmodifiableMap(new LinkedHashMap<>(secrets)), resolvedAt));
+        }
+    }
+
+    /**
+     * Store secrets resolved by a resolution that started at the given generation.
+     * Results of resolutions that raced with an invalidation are dropped, as they may be stale.
+     */
+    public synchronized void put(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets, long startGeneration) {
+        if (startGeneration == generation) {
+            put(key, secrets);
+        }
+    }
+
+    /**
+     * Counter bumped by every invalidation, see {@link #put(SecretSpecCacheKey, Map, long)}
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized void invalidate(@NotNull SecretSpecCacheKey key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Evict the entries whose working directory is the directory or one of its descendants
+     *
+     * @return the number of evicted entries
+     */
+    public synchronized int invalidateUnder(@NotNull String directory) {
+        return invalidateIf(key -> key.isUnder(directory));
+    }
+
+    /**
+     * Evict the entries matching the predicate
+     *
+     * @return the number of evicted entries
+     */
+    public synchronized int invalidateIf(@NotNull Predicate<SecretSpecCacheKey> predicate) {
+        generation++;
+        int before = entries.size();
+        entries.keySet().removeIf(predicate);
+        return before - entries.size();
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final Map<String, String> secrets;
+        final long resolvedAt;
+
+        Entry(Map<String, String> secrets, long resolvedAt) {
+            this.secrets = secrets;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-based index over all secretspec.toml files, storing their profiles and secret names.
+ * Each file is indexed under a single {@link #KEY} so its summary can be read with
+ * {@link FileBasedIndex#getFileData}.
+ */
+public class SecretSpecFileIndex extends FileBasedIndexExtension<String, SecretSpecFileInfo> {
+    
+    public static final ID<String, SecretSpecFileInfo> NAME = ID.create("com.thesoulless.secretspecplugin.spec");
+    public static final String KEY = "spec";
+    
+    @Override
+    public @NotNull ID<String, SecretSpecFileInfo> getName() {
+        return NAME;
+    }
+    
+    @Override
+    public @NotNull DataIndexer<String, SecretSpecFileInfo, FileContent> getIndexer() {
+        return inputData -> Collections.singletonMap(KEY,
+                SecretSpecTomlParser.parse(inputData.getContent(), inputData.getContentAsText()));
+    }
+    
+    @Override
+    public @NotNull KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+    
+    @Override
+    public @NotNull DataExternalizer<SecretSpecFileInfo> getValueExternalizer() {
+        return new InfoExternalizer();
+    }
+    
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+    
+    @Override
+    public @NotNull FileBasedIndex.InputFilter getInputFilter() {
+        return file -> SecretSpecFileInfo.FILE_NAME.equals(file.getName());
+    }
+    
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+    
+    private static final class InfoExternalizer implements DataExternalizer<SecretSpecFileInfo> {
+        
+        @Override
+        public void save(@NotNull DataOutput out, SecretSpecFileInfo value) throws IOException {
+            IOUtil.writeUTF(out, value.getContentHash());
+            out.writeInt(value.getProfiles().size());
+            for (Map.Entry<String, List<String>> profile : value.getProfiles().entrySet()) {
+                IOUtil.writeUTF(out, profile.getKey());
+                out.writeInt(profile.getValue().size());
+                for (String secret : profile.getValue()) {
+                    IOUtil.writeUTF(out, secret);
+                }
+            }
+        }
+        
+        @Override
+        public SecretSpecFileInfo read(@NotNull DataInput in) throws IOException {
+            String contentHash = IOUtil.readUTF(in);
+            int profileCount = in.readInt();
+            Map<String, List<String>> profiles = new LinkedHashMap<>();
+            for (int i = 0; i < profileCount; i++) {
+                String profile = IOUtil.readUTF(in);
+                int secretCount = in.readInt();
+                List<String> secrets = new ArrayList<>(secretCount);
+                for (int j = 0; j < secretCount; j++) {
+                    secrets.add(IOUtil.readUTF(in));
+                }
+                profiles.put(profile, secrets);
+            }
+            return new SecretSpecFileInfo(contentHash, profiles);
+        }
+    }
+}
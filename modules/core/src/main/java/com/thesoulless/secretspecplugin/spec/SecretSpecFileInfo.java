@@ -0,0 +1,83 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Parsed, non-secret summary of a secretspec.toml file: its profiles and the secret names they declare
+ */
+public final class SecretSpecFileInfo {
+    
+    public static final String FILE_NAME = "secretspec.toml";
+    public static final String DEFAULT_PROFILE = "default";
+    
+    private final String contentHash;
+    private final Map<String, List<String>> profiles;
+    
+    public SecretSpecFileInfo(@NotNull String contentHash, @NotNull Map<String, List<String>> profiles) {
+        this.contentHash = contentHash;
+        this.profiles = Collections.unmodifiableMap(new LinkedHashMap<>(profiles));
+    }
+    
+    /**
+     * Hash of the file contents, used to key cached secrets
+     */
+    public @NotNull String getContentHash() {
+        return contentHash;
+    }
+    
+    /**
+     * Profile name to the secret names declared directly in that profile
+     */
+    public @NotNull Map<String, List<String>> getProfiles() {
+        return profiles;
+    }
+    
+    public @NotNull Set<String> getProfileNames() {
+        return profiles.keySet();
+    }
+    
+    public boolean hasProfile(@NotNull String profile) {
+        return profiles.containsKey(profile);
+    }
+    
+    /**
+     * Secret names available in a profile, including the ones inherited from the default profile
+     */
+    public @NotNull List<String> getSecretNames(@NotNull String profile) {
+        Set<String> names = new LinkedHashSet<>(profiles.getOrDefault(DEFAULT_PROFILE, Collections.emptyList()));
+        if (!profile.isEmpty()) {
+            names.addAll(profiles.getOrDefault(profile, Collections.emptyList()));
+        }
+        return new ArrayList<>(names);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SecretSpecFileInfo)) return false;
+        SecretSpecFileInfo that = (SecretSpecFileInfo) o;
+        return contentHash.equals(that.contentHash) && profiles.equals(that.profiles);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(contentHash, profiles);
+    }
+    
+    @Override
+    public String toString() {
+        return "SecretSpecFileInfo{" +
+                "contentHash='" + contentHash + '\'' +
+                ", profiles=" + profiles +
+                '}';
+    }
+}
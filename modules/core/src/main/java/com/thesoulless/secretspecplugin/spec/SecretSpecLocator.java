@@ -0,0 +1,121 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.thesoulless.secretspecplugin.store.SecretSpecMetadataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the secretspec.toml that applies to a directory: the one in the directory itself or in its
+ * nearest ancestor, as secretspec does. Results are memoized for every directory on the walked path and
+ * dropped by {@link #invalidateUnder} when specs or directories are created, moved or deleted.
+ * Found locations are also persisted, so after a restart a launch directory needs one lookup instead of a walk.
+ */
+public class SecretSpecLocator {
+
+    // Directory path -> nearest spec, empty when no ancestor has one
+    private final Map<String, Optional<VirtualFile>> memo = new ConcurrentHashMap<>();
+
+    public static @NotNull SecretSpecLocator getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecLocator.class);
+    }
+
+    /**
+     * The nearest secretspec.toml at or above the directory, or null if there is none
+     */
+    public @Nullable VirtualFile findSpec(@NotNull String directory) {
+        String path = normalize(directory);
+        Optional<VirtualFile> known = memo.get(path);
+        if (known != null && isUsable(known)) {
+            return known.orElse(null);
+        }
+        VirtualFile dir = LocalFileSystem.getInstance().findFileByPath(path);
+        if (dir == null || !dir.isDirectory()) {
+            return null; // Not memoized, the directory may still be created
+        }
+        VirtualFile persisted = findPersistedSpec(path, dir);
+        if (persisted != null) {
+            memo.put(path, Optional.of(persisted));
+            return persisted;
+        }
+
+        List<String> walked = new ArrayList<>();
+        Optional<VirtualFile> result = Optional.empty();
+        for (VirtualFile current = dir; current != null; current = current.getParent()) {
+            known = memo.get(current.getPath());
+            if (known != null && isUsable(known)) {
+                result = known;
+                break;
+            }
+            walked.add(current.getPath());
+            VirtualFile spec = current.findChild(SecretSpecFileInfo.FILE_NAME);
+            if (spec != null && !spec.isDirectory()) {
+                result = Optional.of(spec);
+                break;
+            }
+        }
+        for (String walkedPath : walked) {
+            memo.put(walkedPath, result);
+        }
+        result.ifPresent(spec -> SecretSpecMetadataStore.getInstance().putSpecLocation(path, spec.getPath()));
+        return result.orElse(null);
+    }
+
+    /**
+     * The spec persisted for the directory, if it still exists above it and is still the nearest one.
+     * A closer spec may have appeared while the IDE was closed, e.g. by a checkout, without any VFS event.
+     */
+    private static @Nullable VirtualFile findPersistedSpec(@NotNull String path, @NotNull VirtualFile dir) {
+        String specPath = SecretSpecMetadataStore.getInstance().getSpecLocation(path);
+        VirtualFile spec = specPath != null ? LocalFileSystem.getInstance().findFileByPath(specPath) : null;
+        VirtualFile specDir = spec != null ? spec.getParent() : null;
+        if (spec == null || spec.isDirectory() || specDir == null || !VfsUtilCore.isAncestor(specDir, dir, false)) {
+            return null;
+        }
+        for (VirtualFile current = dir; !current.equals(specDir); current = current.getParent()) {
+            VirtualFile closer = current.findChild(SecretSpecFileInfo.FILE_NAME);
+            if (closer != null && !closer.isDirectory()) {
+                return null; // Found again by the walk, which persists the new location
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Path of the spec that applies to the directory when it lies in an ancestor, where secretspec
+     * has to be pointed at it explicitly; null when the spec is in the directory itself or missing
+     */
+    public @Nullable String findAncestorSpecPath(@NotNull String directory) {
+        VirtualFile spec = findSpec(directory);
+        VirtualFile parent = spec != null ? spec.getParent() : null;
+        return parent != null && !FileUtil.pathsEqual(parent.getPath(), normalize(directory)) ? spec.getPath() : null;
+    }
+
+    /**
+     * Forget the lookups of the directory and everything below it
+     */
+    public void invalidateUnder(@NotNull String directory) {
+        String path = normalize(directory);
+        memo.keySet().removeIf(memoized -> FileUtil.isAncestor(path, memoized, false));
+        SecretSpecMetadataStore.getInstance().removeSpecLocationsUnder(path);
+    }
+
+    private static boolean isUsable(@NotNull Optional<VirtualFile> known) {
+        return known.map(VirtualFile::isValid).orElse(true);
+    }
+
+    private static @NotNull String normalize(@NotNull String directory) {
+        String path = FileUtil.toSystemIndependentName(directory);
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
@@ -0,0 +1,89 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.thesoulless.secretspecplugin.store.SecretSpecMetadataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Project-level view over the secretspec.toml index: all specs of the project and their parsed profiles,
+ * without touching the disk on the launch path. Specs are found by {@link SecretSpecLocator}.
+ */
+public class SecretSpecProjectIndex {
+    
+    private static final Logger LOG = Logger.getInstance(SecretSpecProjectIndex.class);
+    
+    private final Project project;
+    
+    public SecretSpecProjectIndex(@NotNull Project project) {
+        this.project = project;
+    }
+    
+    public static @NotNull SecretSpecProjectIndex getInstance(@NotNull Project project) {
+        return project.getService(SecretSpecProjectIndex.class);
+    }
+    
+    /**
+     * All secretspec.toml files in the project, or an empty list while indexing
+     */
+    public @NotNull Collection<VirtualFile> getSpecFiles() {
+        if (DumbService.isDumb(project)) {
+            return Collections.emptyList();
+        }
+        return ReadAction.compute(() -> FileBasedIndex.getInstance().getContainingFiles(
+                SecretSpecFileIndex.NAME, SecretSpecFileIndex.KEY, GlobalSearchScope.projectScope(project)));
+    }
+    
+    /**
+     * Parsed profiles and secret names of a spec file, read from the index when it is ready
+     */
+    public @Nullable SecretSpecFileInfo getInfo(@NotNull VirtualFile spec) {
+        if (!spec.isValid()) {
+            return null;
+        }
+        if (!DumbService.isDumb(project)) {
+            Map<String, SecretSpecFileInfo> data = ReadAction.compute(
+                    () -> FileBasedIndex.getInstance().getFileData(SecretSpecFileIndex.NAME, spec, project));
+            SecretSpecFileInfo info = data.get(SecretSpecFileIndex.KEY);
+            if (info != null) {
+                return info;
+            }
+        }
+        // Index not available yet (or the file is outside the project) - use the summary persisted
+        // by an earlier session, or parse the VFS content
+        SecretSpecMetadataStore store = SecretSpecMetadataStore.getInstance();
+        SecretSpecFileInfo persisted = store.getSpecInfo(spec.getPath(), spec.getTimeStamp(), spec.getLength());
+        if (persisted != null) {
+            return persisted;
+        }
+        try {
+            byte[] content = spec.contentsToByteArray();
+            SecretSpecFileInfo info = SecretSpecTomlParser.parse(content, LoadTextUtil.getTextByBinaryPresentation(content, spec));
+            store.putSpecInfo(spec.getPath(), spec.getTimeStamp(), spec.getLength(), info);
+            return info;
+        } catch (IOException e) {
+            LOG.warn("Could not read " + spec.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Parsed info of the secretspec.toml that applies to the directory, in it or in its nearest ancestor
+     */
+    public @Nullable SecretSpecFileInfo getInfo(@NotNull String directory) {
+        VirtualFile spec = SecretSpecLocator.getInstance().findSpec(directory);
+        return spec != null ? getInfo(spec) : null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Minimal secretspec.toml reader that only extracts profiles and secret names.
+ * Supports both {@code [profiles.NAME]} tables with one key per secret and
+ * {@code [profiles.NAME.SECRET]} sub-tables.
+ */
+public final class SecretSpecTomlParser {
+    
+    private static final String PROFILES_PREFIX = "profiles.";
+    
+    private SecretSpecTomlParser() {
+    }
+    
+    public static @NotNull SecretSpecFileInfo parse(@NotNull byte[] content, @NotNull CharSequence text) {
+        Map<String, List<String>> profiles = new LinkedHashMap<>();
+        String currentProfile = null;
+        boolean inMultilineString = false;
+        
+        for (String rawLine : text.toString().split("\\R")) {
+            String line = rawLine.trim();
+            if (inMultilineString) {
+                inMultilineString = !closesMultilineString(line);
+                continue;
+            }
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            
+            if (line.startsWith("[")) {
+                currentProfile = null;
+                List<String> path = parseTablePath(line);
+                if (path.size() >= 2 && "profiles".equals(path.get(0))) {
+                    currentProfile = path.get(1);
+                    List<String> secrets = profiles.computeIfAbsent(currentProfile, p -> new ArrayList<>());
+                    if (path.size() >= 3) {
+                        addSecret(secrets, path.get(2)); // [profiles.NAME.SECRET] form
+                        currentProfile = null;
+                    }
+                }
+                continue;
+            }
+            
+            String key = parseKey(line);
+            if (key == null) {
+                continue;
+            }
+            if (currentProfile != null) {
+                addSecret(profiles.get(currentProfile), key);
+            } else if (key.startsWith(PROFILES_PREFIX)) {
+                // Dotted top-level keys such as profiles.default.API_KEY = { ... }
+                String[] parts = key.split("\\.");
+                if (parts.length >= 3) {
+                    addSecret(profiles.computeIfAbsent(parts[1], p -> new ArrayList<>()), parts[2]);
+                }
+            }
+            inMultilineString = opensMultilineString(line);
+        }
+        
+        return new SecretSpecFileInfo(hash(content), profiles);
+    }
+    
+    public static @NotNull String hash(@NotNull byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return Long.toHexString(crc.getValue());
+    }
+    
+    private static void addSecret(@NotNull List<String> secrets, @NotNull String name) {
+        if (!secrets.contains(name)) {
+            secrets.add(name);
+        }
+    }
+    
+    private static @NotNull List<String> parseTablePath(@NotNull String line) {
+        int end = line.indexOf(']');
+        List<String> path = new ArrayList<>();
+        if (end < 0 || line.startsWith("[[")) {
+            return path;
+        }
+        for (String part : line.substring(1, end).split("\\.")) {
+            path.add(unquote(part.trim()));
+        }
+        return path;
+    }
+    
+    private static @Nullable String parseKey(@NotNull String line) {
+        int eq = line.indexOf('=');
+        if (eq <= 0) {
+            return null;
+        }
+        String key = line.substring(0, eq).trim();
+        return key.isEmpty() ? null : unquote(key);
+    }
+    
+    private static @NotNull String unquote(@NotNull String value) {
+        if (value.length() >= 2 &&
+                (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'"))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+    
+    private static boolean opensMultilineString(@NotNull String line) {
+        return countOccurrences(line, "\"\"\"") % 2 == 1 || countOccurrences(line, "'''") % 2 == 1;
+    }
+    
+    private static boolean closesMultilineString(@NotNull String line) {
+        return line.contains("\"\"\"") || line.contains("'''");
+    }
+    
+    private static int countOccurrences(@NotNull String line, @NotNull String token) {
+        int count = 0;
+        for (int i = line.indexOf(token); i >= 0; i = line.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,106 @@
+package com.thesoulless.secretspecplugin.store;
+
+import com.intellij.credentialStore.CredentialAttributes;
+import com.intellij.credentialStore.CredentialAttributesKt;
+import com.intellij.credentialStore.CredentialStore;
+import com.intellij.credentialStore.Credentials;
+import com.intellij.ide.passwordSafe.PasswordSafe;
+import com.intellij.openapi.diagnostic.Logger;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores resolved secrets in a credential store, PasswordSafe unless another one is given (e.g. an in-memory
+ * store in tests). One credential per working directory, profile and provider holds all of its secrets;
+ * the user name is the spec hash, so values resolved for an older spec are ignored.
+ */
+public class SecretSpecCredentialValueStore implements SecretSpecValueStore {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecCredentialValueStore.class);
+    private static final String SUBSYSTEM = "SecretSpec";
+    private static final int FORMAT = 1;
+
+    private final CredentialStore credentials;
+
+    public SecretSpecCredentialValueStore() {
+        this(PasswordSafe.getInstance());
+    }
+
+    public SecretSpecCredentialValueStore(@NotNull CredentialStore credentials) {
+        this.credentials = credentials;
+    }
+
+    @Override
+    public @Nullable Stored load(@NotNull SecretSpecCacheKey key) {
+        Credentials stored = credentials.get(attributes(key));
+        String encoded = stored != null ? stored.getPasswordAsString() : null;
+        if (encoded == null || !key.getSpecHash().equals(stored.getUserName())) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(encoded)))) {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            long resolvedAt = in.readLong();
+            Map<String, String> secrets = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                secrets.put(readString(in), readString(in));
+            }
+            return new Stored(secrets, resolvedAt);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Discarding unreadable stored SecretSpec secrets for " + key.getWorkingDirectory());
+            return null;
+        }
+    }
+
+    @Override
+    public void save(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets, long resolvedAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT);
+            out.writeLong(resolvedAt);
+            out.writeInt(secrets.size());
+            for (Map.Entry<String, String> entry : secrets.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not thrown by in-memory streams
+        }
+        credentials.set(attributes(key), new Credentials(key.getSpecHash(), Base64.getEncoder().encodeToString(bytes.toByteArray())));
+    }
+
+    @Override
+    public void remove(@NotNull SecretSpecCacheKey key) {
+        credentials.set(attributes(key), null);
+    }
+
+    private static @NotNull CredentialAttributes attributes(@NotNull SecretSpecCacheKey key) {
+        return new CredentialAttributes(CredentialAttributesKt.generateServiceName(SUBSYSTEM,
+                key.getWorkingDirectory() + "|" + key.getProfile() + "|" + key.getProvider()));
+    }
+
+    // Values may exceed the 64K limit of writeUTF
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
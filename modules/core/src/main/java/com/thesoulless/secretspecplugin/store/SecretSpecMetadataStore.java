@@ -0,0 +1,380 @@
+package com.thesoulless.secretspecplugin.store;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Non-secret SecretSpec metadata kept across IDE restarts, so the first launch after startup doesn't have to
+ * search PATH, probe the secretspec binary or walk up to the spec again: the located binary, its probed
+ * capabilities, spec locations, parsed spec summaries and which resolutions have values in the
+ * {@link SecretSpecValueStore}. The file is versioned and read on first use; a file of another version is discarded.
+ */
+public class SecretSpecMetadataStore implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecMetadataStore.class);
+    private static final int MAGIC = 0x53535043; // "SSPC"
+    private static final int VERSION = 1;
+    private static final int MAX_ENTRIES = 256;
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    private final Path file;
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private boolean loaded;
+    private boolean dirty;
+
+    // All guarded by this
+    private String pathVariable;
+    private String executablePath;
+    private final Map<String, Probe> probes = boundedMap();
+    private final Map<String, String> specLocations = boundedMap();
+    private final Map<String, SpecSummary> specSummaries = boundedMap();
+    private final Set<SecretSpecCacheKey> valueKeys = new LinkedHashSet<>();
+
+    public SecretSpecMetadataStore() {
+        this(Path.of(PathManager.getSystemPath(), "secretspec", "metadata.bin"));
+    }
+
+    SecretSpecMetadataStore(@NotNull Path file) {
+        this.file = file;
+    }
+
+    public static @NotNull SecretSpecMetadataStore getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecMetadataStore.class);
+    }
+
+    /**
+     * The secretspec binary found for the PATH value, or null if it wasn't looked up with this PATH
+     */
+    public synchronized @Nullable String getExecutablePath(@NotNull String path) {
+        ensureLoaded();
+        return path.equals(pathVariable) ? executablePath : null;
+    }
+
+    public synchronized void putExecutablePath(@NotNull String path, @NotNull String executable) {
+        ensureLoaded();
+        if (path.equals(pathVariable) && executable.equals(executablePath)) {
+            return;
+        }
+        pathVariable = path;
+        executablePath = executable;
+        changed();
+    }
+
+    /**
+     * Capabilities probed from the binary, or null if it changed since
+     */
+    public synchronized @Nullable Probe getProbe(@NotNull String executable, long lastModified) {
+        ensureLoaded();
+        Probe probe = probes.get(executable);
+        return probe != null && probe.lastModified == lastModified ? probe : null;
+    }
+
+    public synchronized void putProbe(@NotNull String executable, @NotNull Probe probe) {
+        ensureLoaded();
+        probes.put(executable, probe);
+        changed();
+    }
+
+    /**
+     * Path of the spec last found for the directory, to be verified by the caller
+     */
+    public synchronized @Nullable String getSpecLocation(@NotNull String directory) {
+        ensureLoaded();
+        return specLocations.get(directory);
+    }
+
+    public synchronized void putSpecLocation(@NotNull String directory, @NotNull String spec) {
+        ensureLoaded();
+        if (!spec.equals(specLocations.put(directory, spec))) {
+            changed();
+        }
+    }
+
+    /**
+     * Forget the spec locations of the directory and everything below it
+     */
+    public synchronized void removeSpecLocationsUnder(@NotNull String directory) {
+        ensureLoaded();
+        if (specLocations.keySet().removeIf(path -> FileUtil.isAncestor(directory, path, false))) {
+            changed();
+        }
+    }
+
+    /**
+     * Parsed summary of a spec, or null if the file's timestamp or length differ from when it was parsed
+     */
+    public synchronized @Nullable SecretSpecFileInfo getSpecInfo(@NotNull String spec, long timeStamp, long length) {
+        ensureLoaded();
+        SpecSummary summary = specSummaries.get(spec);
+        return summary != null && summary.timeStamp == timeStamp && summary.length == length ? summary.info : null;
+    }
+
+    public synchronized void putSpecInfo(@NotNull String spec, long timeStamp, long length, @NotNull SecretSpecFileInfo info) {
+        ensureLoaded();
+        specSummaries.put(spec, new SpecSummary(timeStamp, length, info));
+        changed();
+    }
+
+    /**
+     * Record that the value store holds secrets for the key
+     */
+    public synchronized void addValueKey(@NotNull SecretSpecCacheKey key) {
+        ensureLoaded();
+        if (valueKeys.add(key)) {
+            changed();
+        }
+    }
+
+    /**
+     * Forget the value-store keys matching the predicate
+     *
+     * @return the removed keys, whose values the caller deletes from the value store
+     */
+    public synchronized @NotNull List<SecretSpecCacheKey> removeValueKeys(@NotNull Predicate<SecretSpecCacheKey> predicate) {
+        ensureLoaded();
+        List<SecretSpecCacheKey> removed = new ArrayList<>();
+        for (SecretSpecCacheKey key : valueKeys) {
+            if (predicate.test(key)) {
+                removed.add(key);
+            }
+        }
+        if (!removed.isEmpty()) {
+            valueKeys.removeAll(removed);
+            changed();
+        }
+        return removed;
+    }
+
+    private void changed() {
+        dirty = true;
+        if (saveScheduled.compareAndSet(false, true)) {
+            AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+                saveScheduled.set(false);
+                save();
+            }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        save();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOG.info("Discarding SecretSpec metadata of another version");
+                return;
+            }
+            read(in);
+        } catch (NoSuchFileException e) {
+            // First start
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not read SecretSpec metadata from " + file + ": " + e.getMessage());
+            clearAll();
+        }
+    }
+
+    private synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            LOG.warn("Could not write SecretSpec metadata to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void read(@NotNull DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            pathVariable = in.readUTF();
+            executablePath = in.readUTF();
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            String executable = in.readUTF();
+            long lastModified = in.readLong();
+            String version = in.readBoolean() ? in.readUTF() : null;
+            probes.put(executable, new Probe(lastModified, version, readStrings(in), readStrings(in)));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            specLocations.put(in.readUTF(), in.readUTF());
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            String spec = in.readUTF();
+            long timeStamp = in.readLong();
+            long length = in.readLong();
+            String hash = in.readUTF();
+            Map<String, List<String>> profiles = new LinkedHashMap<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                profiles.put(in.readUTF(), new ArrayList<>(readStrings(in)));
+            }
+            specSummaries.put(spec, new SpecSummary(timeStamp, length, new SecretSpecFileInfo(hash, profiles)));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            valueKeys.add(new SecretSpecCacheKey(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()));
+        }
+    }
+
+    private void write(@NotNull DataOutputStream out) throws IOException {
+        out.writeBoolean(pathVariable != null && executablePath != null);
+        if (pathVariable != null && executablePath != null) {
+            out.writeUTF(pathVariable);
+            out.writeUTF(executablePath);
+        }
+        out.writeInt(probes.size());
+        for (Map.Entry<String, Probe> entry : probes.entrySet()) {
+            Probe probe = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(probe.lastModified);
+            out.writeBoolean(probe.version != null);
+            if (probe.version != null) {
+                out.writeUTF(probe.version);
+            }
+            writeStrings(out, probe.subcommands);
+            writeStrings(out, probe.runFlags);
+        }
+        out.writeInt(specLocations.size());
+        for (Map.Entry<String, String> entry : specLocations.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+        out.writeInt(specSummaries.size());
+        for (Map.Entry<String, SpecSummary> entry : specSummaries.entrySet()) {
+            SpecSummary summary = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(summary.timeStamp);
+            out.writeLong(summary.length);
+            out.writeUTF(summary.info.getContentHash());
+            out.writeInt(summary.info.getProfiles().size());
+            for (Map.Entry<String, List<String>> profile : summary.info.getProfiles().entrySet()) {
+                out.writeUTF(profile.getKey());
+                writeStrings(out, profile.getValue());
+            }
+        }
+        out.writeInt(valueKeys.size());
+        for (SecretSpecCacheKey key : valueKeys) {
+            out.writeUTF(key.getWorkingDirectory());
+            out.writeUTF(key.getProfile());
+            out.writeUTF(key.getProvider());
+            out.writeUTF(key.getSpecHash());
+        }
+    }
+
+    private static @NotNull Set<String> readStrings(@NotNull DataInputStream in) throws IOException {
+        Set<String> strings = new LinkedHashSet<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    private static void writeStrings(@NotNull DataOutputStream out, @NotNull Iterable<String> strings) throws IOException {
+        List<String> list = new ArrayList<>();
+        strings.forEach(list::add);
+        out.writeInt(list.size());
+        for (String string : list) {
+            out.writeUTF(string);
+        }
+    }
+
+    private void clearAll() {
+        pathVariable = null;
+        executablePath = null;
+        probes.clear();
+        specLocations.clear();
+        specSummaries.clear();
+        valueKeys.clear();
+    }
+
+    private static <V> @NotNull Map<String, V> boundedMap() {
+        // Access-ordered so the least recently used entry is dropped first
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    /**
+     * Result of probing a secretspec binary, valid while its modification time is unchanged
+     */
+    public static final class Probe {
+        private final long lastModified;
+        private final String version;
+        private final Set<String> subcommands;
+        private final Set<String> runFlags;
+
+        public Probe(long lastModified, @Nullable String version, @NotNull Set<String> subcommands, @NotNull Set<String> runFlags) {
+            this.lastModified = lastModified;
+            this.version = version;
+            this.subcommands = Collections.unmodifiableSet(new LinkedHashSet<>(subcommands));
+            this.runFlags = Collections.unmodifiableSet(new LinkedHashSet<>(runFlags));
+        }
+
+        public @Nullable String getVersion() {
+            return version;
+        }
+
+        public @NotNull Set<String> getSubcommands() {
+            return subcommands;
+        }
+
+        public @NotNull Set<String> getRunFlags() {
+            return runFlags;
+        }
+    }
+
+    private static final class SpecSummary {
+        final long timeStamp;
+        final long length;
+        final SecretSpecFileInfo info;
+
+        SpecSummary(long timeStamp, long length, SecretSpecFileInfo info) {
+            this.timeStamp = timeStamp;
+            this.length = length;
+            this.info = info;
+        }
+    }
+}
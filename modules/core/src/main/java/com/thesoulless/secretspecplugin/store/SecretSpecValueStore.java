@@ -0,0 +1,53 @@
+package com.thesoulless.secretspecplugin.store;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encrypted storage for resolved secret values that outlives the IDE, used only when
+ * the secretspec.cache.persistValues registry key is set. The default implementation keeps them in PasswordSafe.
+ */
+public interface SecretSpecValueStore {
+
+    String REGISTRY_KEY = "secretspec.cache.persistValues";
+
+    static @NotNull SecretSpecValueStore getInstance() {
+        return ApplicationManager.getApplication().getService(SecretSpecValueStore.class);
+    }
+
+    /**
+     * The stored secrets for the key, or null if none are stored for this spec version
+     */
+    @Nullable Stored load(@NotNull SecretSpecCacheKey key);
+
+    void save(@NotNull SecretSpecCacheKey key, @NotNull Map<String, String> secrets, long resolvedAt);
+
+    void remove(@NotNull SecretSpecCacheKey key);
+
+    /**
+     * Secrets together with the time they were resolved, so the cache TTL still applies after a restart
+     */
+    final class Stored {
+        private final Map<String, String> secrets;
+        private final long resolvedAt;
+
+        public Stored(@NotNull Map<String, String> secrets, long resolvedAt) {
+            this.secrets = Collections.unmodifiableMap(new LinkedHashMap<>(secrets));
+            this.resolvedAt = resolvedAt;
+        }
+
+        public @NotNull Map<String, String> getSecrets() {
+            return secrets;
+        }
+
+        public long getResolvedAt() {
+            return resolvedAt;
+        }
+    }
+}
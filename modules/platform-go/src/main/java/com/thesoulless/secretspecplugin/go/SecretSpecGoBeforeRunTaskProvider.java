@@ -0,0 +1,81 @@
+package com.thesoulless.secretspecplugin.go;
+
+import com.goide.execution.GoRunConfigurationBase;
+import com.intellij.execution.BeforeRunTaskProvider;
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.util.Key;
+import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.execution.SecretSpecBeforeRunTask;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Before launch task provider that starts secret resolution as soon as a Go run is scheduled,
+ * so the provider round-trip runs in parallel with the Go build instead of after it
+ */
+public class SecretSpecGoBeforeRunTaskProvider extends BeforeRunTaskProvider<SecretSpecBeforeRunTask> {
+
+    public static final Key<SecretSpecBeforeRunTask> ID = Key.create("SecretSpecGoPrefetch");
+
+    @Override
+    public @NotNull Key<SecretSpecBeforeRunTask> getId() {
+        return ID;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Resolve SecretSpec secrets";
+    }
+
+    @Override
+    public @NotNull String getDescription(@NotNull SecretSpecBeforeRunTask task) {
+        return "Resolve SecretSpec secrets in parallel with the build";
+    }
+
+    @Override
+    public @Nullable SecretSpecBeforeRunTask createTask(@NotNull RunConfiguration runConfiguration) {
+        if (!(runConfiguration instanceof GoRunConfigurationBase)) {
+            return null;
+        }
+        SecretSpecBeforeRunTask task = new SecretSpecBeforeRunTask(ID);
+        task.setEnabled(false); // Added explicitly from the Before launch list
+        return task;
+    }
+
+    @Override
+    public boolean executeTask(@NotNull DataContext context,
+                               @NotNull RunConfiguration configuration,
+                               @NotNull ExecutionEnvironment environment,
+                               @NotNull SecretSpecBeforeRunTask task) {
+        if (!(configuration instanceof GoRunConfigurationBase)) {
+            return true;
+        }
+        GoRunConfigurationBase<?> goConfiguration = (GoRunConfigurationBase<?>) configuration;
+        SecretSpecRunSettings runSettings = SecretSpecRunConfigurationExtensionBase.getSettings(goConfiguration);
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
+        if (settings == null || !settings.isEnabled()) {
+            return true;
+        }
+
+        String workingDirectory = SecretSpecWorkingDirectoryProvider.find(goConfiguration);
+        if (workingDirectory == null) {
+            return true;
+        }
+
+        // Don't wait for the result here - patchCommandLine picks it up once the build is done
+        SecretSpecResolver.getInstance().prefetch(
+                SecretSpecCacheKey.create(workingDirectory, settings, goConfiguration.getProject()), goConfiguration.getProject());
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PREFETCH, configuration.getName(),
+                "started for %s", workingDirectory);
+        return true;
+    }
+}
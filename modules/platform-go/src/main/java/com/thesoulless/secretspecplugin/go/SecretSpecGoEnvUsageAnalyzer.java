@@ -0,0 +1,376 @@
+package com.thesoulless.secretspecplugin.go;
+
+import com.goide.GoFileType;
+import com.goide.psi.GoCallExpr;
+import com.goide.psi.GoExpression;
+import com.goide.psi.GoFile;
+import com.goide.psi.GoImportSpec;
+import com.goide.psi.GoReferenceExpression;
+import com.goide.psi.GoStringLiteral;
+import com.goide.psi.GoTag;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the environment variables a Go module reads: literal names passed to os.Getenv, os.LookupEnv and
+ * viper.BindEnv, and names in env and envconfig struct tags. The module is the one whose go.mod is nearest
+ * above the working directory; without a go.mod the whole project is analyzed.
+ * The analysis is inconclusive, and every secret is injected, as soon as a name is computed at runtime,
+ * the program reads the environment as a whole, or it imports a package outside the module whose code
+ * isn't analyzed: a dependency may read PGPASSWORD or AWS_* itself. Standard packages, vendored packages
+ * and the env helpers modelled here are analyzed; more can be declared env-free through the registry.
+ * Package qualifiers are resolved through the file's imports, so aliased and dot imports are recognized.
+ */
+public class SecretSpecGoEnvUsageAnalyzer {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecGoEnvUsageAnalyzer.class);
+    public static final String REGISTRY_KEY = "secretspec.go.usedSecretsOnly";
+    public static final String ENV_FREE_IMPORTS_KEY = "secretspec.go.envFreeImports";
+    private static final String GO_MOD = "go.mod";
+    private static final Pattern MODULE = Pattern.compile("^\\s*module\\s+\"?([^\\s\"]+)", Pattern.MULTILINE);
+
+    private static final String VIPER = "github.com/spf13/viper";
+    private static final String ENVCONFIG = "github.com/kelseyhightower/envconfig";
+    // Calls whose first argument is the variable name, by import path and function
+    private static final Set<String> NAME_CALLS = Set.of("os.Getenv", "os.LookupEnv", "syscall.Getenv", VIPER + ".BindEnv");
+    // Calls that read variables we can't name
+    private static final Set<String> OPAQUE_CALLS = Set.of("os.Environ", "syscall.Environ", "os.ExpandEnv",
+            VIPER + ".AutomaticEnv", VIPER + ".SetEnvPrefix", ENVCONFIG + ".Process", ENVCONFIG + ".MustProcess");
+    // Methods of a viper instance, e.g. v := viper.New(), that read the environment like the package functions
+    private static final Set<String> VIPER_METHODS = Set.of("BindEnv", "AutomaticEnv", "SetEnvPrefix");
+    // Standard packages that hand the whole environment to child processes
+    private static final Set<String> OPAQUE_IMPORTS = Set.of("os/exec");
+    // Packages outside the module whose environment reads are covered above, or that read none
+    private static final List<String> ANALYZED_IMPORTS = List.of(VIPER, ENVCONFIG, "github.com/caarlos0/env",
+            "github.com/stretchr/testify");
+    private static final List<String> MARKERS = List.of("Getenv", "LookupEnv", "Environ", "ExpandEnv", "BindEnv",
+            "AutomaticEnv", "SetEnvPrefix", "envconfig", "env:\"");
+    private static final Pattern TAG = Pattern.compile("(?<![\\w-])(env|envconfig|envPrefix):\"([^\"]*)\"");
+
+    private final Project project;
+    // Module directory -> analysis at a PSI modification count and env-free import setting
+    private final Map<String, Analysis> analyses = new ConcurrentHashMap<>();
+
+    public SecretSpecGoEnvUsageAnalyzer(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static @NotNull SecretSpecGoEnvUsageAnalyzer getInstance(@NotNull Project project) {
+        return project.getService(SecretSpecGoEnvUsageAnalyzer.class);
+    }
+
+    /**
+     * Names of the environment variables read by the module of the working directory,
+     * or null if they can't be determined statically
+     */
+    public @Nullable Set<String> findUsedNames(@NotNull String workingDirectory) {
+        if (ApplicationManager.getApplication().isDispatchThread()) {
+            // The module is never scanned on the EDT. Without a current analysis every secret is injected this
+            // time, and the module is analyzed in the background for the next launch.
+            Analysis known = ReadAction.compute(() -> findCurrent(workingDirectory));
+            if (known == null) {
+                ReadAction.nonBlocking(() -> analyze(workingDirectory))
+                        .expireWith(project)
+                        .submit(AppExecutorUtil.getAppExecutorService());
+                return null;
+            }
+            return known.names;
+        }
+        return ReadAction.nonBlocking(() -> analyze(workingDirectory))
+                .expireWith(project)
+                .executeSynchronously();
+    }
+
+    /**
+     * The analysis of the working directory's module if it is up to date with the PSI, without scanning
+     */
+    private @Nullable Analysis findCurrent(@NotNull String workingDirectory) {
+        VirtualFile directory = LocalFileSystem.getInstance().findFileByPath(workingDirectory);
+        Analysis known = directory != null && directory.isDirectory() ? analyses.get(getKey(findModuleRoot(directory))) : null;
+        return known != null && known.isCurrent(PsiModificationTracker.getInstance(project).getModificationCount()) ? known : null;
+    }
+
+    private @Nullable Set<String> analyze(@NotNull String workingDirectory) {
+        if (project.isDisposed() || DumbService.isDumb(project)) {
+            return null; // No index to find the Go files with
+        }
+        VirtualFile directory = LocalFileSystem.getInstance().findFileByPath(workingDirectory);
+        if (directory == null || !directory.isDirectory()) {
+            return null;
+        }
+        VirtualFile moduleRoot = findModuleRoot(directory);
+        String key = getKey(moduleRoot);
+        long modificationCount = PsiModificationTracker.getInstance(project).getModificationCount();
+        Analysis known = analyses.get(key);
+        if (known != null && known.isCurrent(modificationCount)) {
+            return known.names;
+        }
+
+        GlobalSearchScope scope = moduleRoot != null ?
+                GlobalSearchScopesCore.directoryScope(project, moduleRoot, true) : GlobalSearchScope.projectScope(project);
+        Ref<String> inconclusive = new Ref<>();
+        Set<String> names = collect(scope, moduleRoot, inconclusive);
+        analyses.put(key, new Analysis(modificationCount, names));
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.INJECTED, moduleRoot != null ? key : null,
+                "Go environment usage: %s", names != null ? names.size() + " variables read" : "inconclusive, " + inconclusive.get());
+        return names;
+    }
+
+    private @Nullable Set<String> collect(@NotNull GlobalSearchScope scope, @Nullable VirtualFile moduleRoot,
+                                          @NotNull Ref<String> inconclusive) {
+        Set<String> names = new TreeSet<>();
+        String modulePath = moduleRoot != null ? readModulePath(moduleRoot) : null;
+        List<String> analyzedImports = getAnalyzedImports();
+        PsiManager psiManager = PsiManager.getInstance(project);
+        for (VirtualFile file : FileTypeIndex.getFiles(GoFileType.INSTANCE, scope)) {
+            ProgressManager.checkCanceled();
+            PsiFile psiFile = psiManager.findFile(file);
+            if (!(psiFile instanceof GoFile)) {
+                continue;
+            }
+            Map<String, String> imports = new HashMap<>();
+            List<String> dotImports = new ArrayList<>();
+            for (GoImportSpec spec : ((GoFile) psiFile).getImports()) {
+                String path = spec.getPath();
+                if (!isAnalyzed(path, modulePath, moduleRoot, analyzedImports)) {
+                    inconclusive.set(file.getName() + " imports " + path);
+                    return null;
+                }
+                if (spec.isDot()) {
+                    dotImports.add(path);
+                } else if (spec.getLocalPackageName() != null) {
+                    imports.put(spec.getLocalPackageName(), path);
+                }
+            }
+            if (!containsMarker(psiFile.getViewProvider().getContents())) {
+                continue;
+            }
+            for (GoCallExpr call : PsiTreeUtil.findChildrenOfType(psiFile, GoCallExpr.class)) {
+                if (!collectCall(call, imports, dotImports, names)) {
+                    inconclusive.set(file.getName() + " reads the environment at runtime");
+                    return null;
+                }
+            }
+            for (GoTag tag : PsiTreeUtil.findChildrenOfType(psiFile, GoTag.class)) {
+                if (!collectTag(tag.getText(), names)) {
+                    inconclusive.set(file.getName() + " uses envPrefix tags");
+                    return null;
+                }
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return false if the call makes the analysis inconclusive
+     */
+    private static boolean collectCall(@NotNull GoCallExpr call, @NotNull Map<String, String> imports,
+                                       @NotNull List<String> dotImports, @NotNull Set<String> names) {
+        String callee = getQualifiedName(call.getExpression(), imports, dotImports);
+        if (callee == null) {
+            return true;
+        }
+        if (OPAQUE_CALLS.contains(callee)) {
+            return false;
+        }
+        if (!NAME_CALLS.contains(callee)) {
+            return true;
+        }
+        List<GoExpression> arguments = call.getArgumentList().getExpressionList();
+        if (arguments.isEmpty()) {
+            return true;
+        }
+        // viper.BindEnv(key, envNames...) reads the key itself only when no names are given
+        boolean bindEnv = callee.equals(VIPER + ".BindEnv");
+        List<GoExpression> nameArguments = bindEnv && arguments.size() > 1 ?
+                arguments.subList(1, arguments.size()) : arguments.subList(0, 1);
+        for (GoExpression argument : nameArguments) {
+            if (!(argument instanceof GoStringLiteral)) {
+                return false;
+            }
+            String name = ((GoStringLiteral) argument).getDecodedText();
+            if (bindEnv && arguments.size() == 1) {
+                name = name.toUpperCase(); // viper upper-cases keys when no env prefix is set
+            }
+            names.add(name);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the tag makes the analysis inconclusive
+     */
+    private static boolean collectTag(@NotNull String tag, @NotNull Set<String> names) {
+        Matcher matcher = TAG.matcher(tag);
+        while (matcher.find()) {
+            if (matcher.group(1).equals("envPrefix")) {
+                return false; // Nested structs get prefixed names
+            }
+            String name = StringUtil.substringBefore(matcher.group(2), ",");
+            if (name == null) {
+                name = matcher.group(2);
+            }
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Import path and name of the called function, with the package qualifier resolved through the
+     * file's imports, e.g. "os.Getenv" for goos.Getenv after import goos "os"
+     */
+    private static @Nullable String getQualifiedName(@Nullable GoExpression expression, @NotNull Map<String, String> imports,
+                                                     @NotNull List<String> dotImports) {
+        if (!(expression instanceof GoReferenceExpression)) {
+            return null;
+        }
+        GoReferenceExpression reference = (GoReferenceExpression) expression;
+        String function = reference.getIdentifier().getText();
+        PsiElement qualifier = reference.getQualifier();
+        if (qualifier == null) {
+            // A dot import makes the package's functions callable without a qualifier
+            for (String path : dotImports) {
+                String callee = path + "." + function;
+                if (NAME_CALLS.contains(callee) || OPAQUE_CALLS.contains(callee)) {
+                    return callee;
+                }
+            }
+            return null;
+        }
+        if (qualifier instanceof GoReferenceExpression && ((GoReferenceExpression) qualifier).getQualifier() == null) {
+            String path = imports.get(qualifier.getText());
+            if (path != null) {
+                return path + "." + function;
+            }
+        }
+        return imports.containsValue(VIPER) && VIPER_METHODS.contains(function) ? VIPER + "." + function : null;
+    }
+
+    /**
+     * Whether the code of an imported package is analyzed or known not to read secrets
+     */
+    private static boolean isAnalyzed(@NotNull String path, @Nullable String modulePath, @Nullable VirtualFile moduleRoot,
+                                      @NotNull List<String> analyzedImports) {
+        if (OPAQUE_IMPORTS.contains(path)) {
+            return false;
+        }
+        if (!path.split("/", 2)[0].contains(".")) {
+            return true; // Standard library
+        }
+        if (modulePath != null && isInPackage(path, modulePath)) {
+            return true; // Part of the module, scanned with it
+        }
+        if (moduleRoot != null && moduleRoot.findFileByRelativePath("vendor/" + path) != null) {
+            return true; // Vendored inside the module, scanned with it
+        }
+        for (String analyzed : analyzedImports) {
+            if (isInPackage(path, analyzed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInPackage(@NotNull String path, @NotNull String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+
+    private static @NotNull List<String> getAnalyzedImports() {
+        List<String> analyzed = new ArrayList<>(ANALYZED_IMPORTS);
+        for (String path : Registry.stringValue(ENV_FREE_IMPORTS_KEY).split(",")) {
+            if (!path.trim().isEmpty()) {
+                analyzed.add(StringUtil.trimEnd(path.trim(), "/"));
+            }
+        }
+        return analyzed;
+    }
+
+    private static @Nullable String readModulePath(@NotNull VirtualFile moduleRoot) {
+        VirtualFile goMod = moduleRoot.findChild(GO_MOD);
+        if (goMod == null) {
+            return null;
+        }
+        try {
+            Matcher matcher = MODULE.matcher(VfsUtilCore.loadText(goMod));
+            return matcher.find() ? matcher.group(1) : null;
+        } catch (IOException e) {
+            LOG.debug("Cannot read " + goMod.getPath(), e);
+            return null;
+        }
+    }
+
+    private static boolean containsMarker(@NotNull CharSequence text) {
+        for (String marker : MARKERS) {
+            if (StringUtil.contains(text, marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static @NotNull String getKey(@Nullable VirtualFile moduleRoot) {
+        return moduleRoot != null ? moduleRoot.getPath() : "";
+    }
+
+    private static @Nullable VirtualFile findModuleRoot(@NotNull VirtualFile directory) {
+        for (VirtualFile current = directory; current != null; current = current.getParent()) {
+            VirtualFile goMod = current.findChild(GO_MOD);
+            if (goMod != null && !goMod.isDirectory()) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    private static final class Analysis {
+        private final long modificationCount;
+        private final String envFreeImports = Registry.stringValue(ENV_FREE_IMPORTS_KEY);
+        private final Set<String> names;
+
+        private Analysis(long modificationCount, @Nullable Set<String> names) {
+            this.modificationCount = modificationCount;
+            this.names = names;
+        }
+
+        private boolean isCurrent(long currentModificationCount) {
+            return modificationCount == currentModificationCount && envFreeImports.equals(Registry.stringValue(ENV_FREE_IMPORTS_KEY));
+        }
+    }
+}
@@ -6,16 +6,29 @@ import com.goide.execution.GoBuildingRunConfiguration;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.configurations.RunnerSettings;
+import com.intellij.execution.configurations.RuntimeConfigurationWarning;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.options.SettingsEditor;
 import com.intellij.openapi.util.InvalidDataException;
 import com.intellij.openapi.util.WriteExternalException;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecSettingsEditor;
 import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import com.thesoulless.secretspecplugin.spec.SecretSpecProjectIndex;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Set;
+
 /**
  * Go-specific SecretSpec run configuration extension
  * 
@@ -30,7 +43,6 @@ import org.jetbrains.annotations.Nullable;
 public class SecretSpecGoRunConfigurationExtension extends GoRunConfigurationExtension {
     
     private static final Logger LOG = Logger.getInstance(SecretSpecGoRunConfigurationExtension.class);
-    private static final String SETTINGS_TAG = "secretspec-settings";
     
     @Override
     protected @NotNull String getEditorTitle() {
@@ -50,7 +62,7 @@ public class SecretSpecGoRunConfigurationExtension extends GoRunConfigurationExt
     @Override
     public <P extends GoRunConfigurationBase<?>> @Nullable SettingsEditor<P> createEditor(@NotNull P configuration) {
         @SuppressWarnings("unchecked")
-        SettingsEditor<P> editor = (SettingsEditor<P>) new SecretSpecGoSettingsEditor<P>();
+        SettingsEditor<P> editor = (SettingsEditor<P>) new SecretSpecSettingsEditor<P>(configuration.getProject());
         return editor;
     }
     
@@ -61,34 +73,41 @@ public class SecretSpecGoRunConfigurationExtension extends GoRunConfigurationExt
                                    @NotNull GeneralCommandLine cmdLine,
                                    @NotNull String runnerId) throws ExecutionException {
         
-        SecretSpecRunSettings settings = SecretSpecRunConfigurationExtensionBase.getSettings(configuration);
-        if (settings == null || !settings.isEnabled()) {
+        SecretSpecRunSettings runSettings = SecretSpecRunConfigurationExtensionBase.getSettings(configuration);
+        if (runSettings == null) {
+            return;
+        }
+        // Read one consistent snapshot, the settings editor may apply new settings while we launch
+        SecretSpecSettingsSnapshot settings = runSettings.snapshot();
+        if (!settings.isEnabled()) {
             return; // SecretSpec not enabled for this configuration
         }
         
-        LOG.info("SecretSpec enabled - runnerId: " + runnerId + ", configuration: " + configuration.getName());
-        
         // Check if this is a debug execution
         boolean isDebugExecution = "Debug".equals(runnerId) || runnerId.contains("Debug");
         
         if (isDebugExecution) {
             // For debugging, inject SecretSpec environment variables instead of wrapping command
             // This allows the debugger to attach to the actual Go process
-            LOG.info("Debug execution detected - injecting environment variables instead of command wrapping");
             injectSecretSpecEnvironment(cmdLine, settings, configuration);
         } else {
             // For run execution, wrap with SecretSpec
-            LOG.info("Run execution detected - wrapping command with SecretSpec");
-            modifyCommandLine(cmdLine, settings, configuration);
+            modifyCommandLine(cmdLine, settings, configuration, runnerId);
         }
     }
     
     /**
-     * Inject SecretSpec environment variables for debug execution
+     * Inject resolved secrets and SecretSpec environment variables for debug execution
      */
     private void injectSecretSpecEnvironment(@NotNull GeneralCommandLine cmdLine, 
-                                           @NotNull SecretSpecRunSettings settings,
-                                           @NotNull GoRunConfigurationBase<?> configuration) {
+                                           @NotNull SecretSpecSettingsSnapshot settings,
+                                           @NotNull GoRunConfigurationBase<?> configuration) throws ExecutionException {
+        // Resolve the secrets in the plugin so the debugged process starts with them, like a wrapped run
+        String workingDirectory = getWorkingDirectory(configuration, cmdLine);
+        SecretSpecLaunchPatcher.Outcome outcome =
+                SecretSpecLaunchPatcher.inject(cmdLine.getEnvironment(), workingDirectory, settings, configuration.getProject(),
+                        findUsedNames(configuration, workingDirectory));
+        
         // Add SECRETSPEC_PROFILE environment variable if profile is set
         if (settings.hasProfile()) {
             cmdLine.getEnvironment().put("SECRETSPEC_PROFILE", settings.getProfile());
@@ -102,98 +121,66 @@ public class SecretSpecGoRunConfigurationExtension extends GoRunConfigurationExt
         // Set flag to indicate SecretSpec should be used
         cmdLine.getEnvironment().put("SECRETSPEC_ENABLED", "true");
         
-        LOG.info("Injected SecretSpec environment variables for debug execution: " + 
-                "SECRETSPEC_ENABLED=true" +
-                (settings.hasProfile() ? ", SECRETSPEC_PROFILE=" + settings.getProfile() : "") +
-                (settings.hasProvider() ? ", SECRETSPEC_PROVIDER=" + settings.getProvider() : ""));
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PATCHED, configuration.getName(),
+                "debug, secrets %s, profile '%s', provider '%s', working directory %s",
+                outcome, settings.getProfile(), settings.getProvider(), workingDirectory);
     }
     
     /**
      * Modify the command line to add SecretSpec prefix
      */
-    private void modifyCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecRunSettings settings, @NotNull GoRunConfigurationBase<?> configuration) {
-        // Store original command details
-        String originalExePath = cmdLine.getExePath();
-        var originalParameters = cmdLine.getParametersList().getList().toArray(new String[0]);
-        
-        // Get working directory from the Go configuration itself (not the command line)
+    private void modifyCommandLine(@NotNull GeneralCommandLine cmdLine, @NotNull SecretSpecSettingsSnapshot settings,
+                                   @NotNull GoRunConfigurationBase<?> configuration, @NotNull String runnerId) {
+        String workingDirectory = getWorkingDirectory(configuration, cmdLine);
+        
+        // Inject prefetched, cached or agent-resolved secrets, the wrapper is only needed when none are at hand
+        // The working directory from the Go configuration is pinned so the wrapper finds the same secretspec.toml
+        SecretSpecLaunchPatcher.Outcome outcome =
+                SecretSpecLaunchPatcher.patch(cmdLine, workingDirectory, settings, configuration.getProject(),
+                        findUsedNames(configuration, workingDirectory));
+        
+        // The command line is only joined into a string when the diagnostics are viewed
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PATCHED, configuration.getName(),
+                "%s, secrets %s, profile '%s', provider '%s', working directory %s, command: %s",
+                runnerId, outcome, settings.getProfile(), settings.getProvider(), workingDirectory,
+                cmdLine.getCommandLineList(null));
+    }
+    
+    /**
+     * Environment variables the Go module reads, when only those secrets should be injected
+     */
+    private static @Nullable Set<String> findUsedNames(@NotNull GoRunConfigurationBase<?> configuration, @NotNull String workingDirectory) {
+        if (!Registry.is(SecretSpecGoEnvUsageAnalyzer.REGISTRY_KEY, false)) {
+            return null;
+        }
+        return SecretSpecGoEnvUsageAnalyzer.getInstance(configuration.getProject()).findUsedNames(workingDirectory);
+    }
+    
+    /**
+     * Get working directory from the Go configuration itself, falling back to the command line
+     */
+    private @NotNull String getWorkingDirectory(@NotNull GoRunConfigurationBase<?> configuration, @NotNull GeneralCommandLine cmdLine) {
         String workingDirectory = getWorkingDirectoryFromConfiguration(configuration);
         if (workingDirectory == null) {
             // Fallback to command line working directory
             workingDirectory = cmdLine.getWorkDirectory() != null ? 
                 cmdLine.getWorkDirectory().getAbsolutePath() : System.getProperty("user.dir");
         }
-        
-        // Log original command details for debugging
-        LOG.info("=== SecretSpec Command Modification Debug ===");
-        LOG.info("Original exe path: " + originalExePath);
-        LOG.info("Original parameters: " + String.join(" ", originalParameters));
-        LOG.info("Working directory: " + workingDirectory);
-        
-        // Check for secretspec.toml in the working directory
-        java.io.File secretSpecFile = new java.io.File(workingDirectory, "secretspec.toml");
-        LOG.info("Looking for secretspec.toml at: " + secretSpecFile.getAbsolutePath());
-        LOG.info("secretspec.toml exists: " + secretSpecFile.exists());
-        
-        if (!secretSpecFile.exists()) {
-            LOG.warn("WARNING: secretspec.toml not found in working directory: " + workingDirectory);
-            LOG.warn("SecretSpec may fail to load configuration. Make sure secretspec.toml exists in the working directory.");
-        }
-        
-        // Replace with SecretSpec command (keeping the same working directory)
-        cmdLine.setExePath("secretspec");
-        cmdLine.getParametersList().clearAll();
-        
-        // Add SecretSpec parameters
-        cmdLine.addParameter("run");
-        
-        if (settings.hasProfile()) {
-            cmdLine.addParameter("--profile");
-            cmdLine.addParameter(settings.getProfile());
-            LOG.info("Using profile: " + settings.getProfile());
-        }
-        
-        if (settings.hasProvider()) {
-            cmdLine.addParameter("--provider");
-            cmdLine.addParameter(settings.getProvider());
-            LOG.info("Using provider: " + settings.getProvider());
-        }
-        
-        cmdLine.addParameter("--");
-        
-        // Add original command
-        cmdLine.addParameter(originalExePath);
-        cmdLine.addParameters(originalParameters);
-        
-        // Set the correct working directory (from the Go configuration)
-        if (workingDirectory != null) {
-            cmdLine.setWorkDirectory(new java.io.File(workingDirectory));
-        }
-        
-        LOG.info("Final command: " + cmdLine.getCommandLineString());
-        LOG.info("Final working directory: " + (cmdLine.getWorkDirectory() != null ? 
-            cmdLine.getWorkDirectory().getAbsolutePath() : "null"));
-        LOG.info("=== End Debug Info ===");
+        return workingDirectory;
     }
     
     /**
      * Get working directory from the Go build configuration
      * This is more reliable than getting it from the command line
      */
-    private String getWorkingDirectoryFromConfiguration(@NotNull GoRunConfigurationBase<?> configuration) {
+    static String getWorkingDirectoryFromConfiguration(@NotNull GoRunConfigurationBase<?> configuration) {
         try {
             // Check if this is a GoBuildingRunConfiguration (most common case)
             if (configuration instanceof GoBuildingRunConfiguration) {
                 GoBuildingRunConfiguration goBuildConfig = (GoBuildingRunConfiguration) configuration;
-                String workingDir = goBuildConfig.getWorkingDirectory();
-                LOG.info("Got working directory from GoBuildingRunConfiguration: " + workingDir);
-                return workingDir;
+                return goBuildConfig.getWorkingDirectory();
             }
             
-            // For other Go configuration types, log what we found
-            LOG.info("Configuration type: " + configuration.getClass().getSimpleName());
-            LOG.info("Unable to extract working directory from configuration type: " + configuration.getClass().getName());
-            
         } catch (Exception e) {
             LOG.warn("Error getting working directory from configuration: " + e.getMessage(), e);
         }
@@ -201,25 +188,43 @@ public class SecretSpecGoRunConfigurationExtension extends GoRunConfigurationExt
         return null;
     }
     
+    /**
+     * Warn in the run configuration dialog when the spec is missing or doesn't define the profile
+     */
+    @Override
+    protected void validateConfiguration(@NotNull GoRunConfigurationBase<?> configuration, boolean isExecution) throws Exception {
+        SecretSpecRunSettings runSettings = SecretSpecRunConfigurationExtensionBase.getSettings(configuration);
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
+        if (settings == null || !settings.isEnabled()) {
+            return;
+        }
+        String workingDirectory = getWorkingDirectoryFromConfiguration(configuration);
+        if (workingDirectory == null || workingDirectory.isEmpty()) {
+            return;
+        }
+        
+        VirtualFile spec = SecretSpecLocator.getInstance().findSpec(workingDirectory);
+        if (spec == null) {
+            throw new RuntimeConfigurationWarning("secretspec.toml not found in working directory " + workingDirectory +
+                    " or its parent directories");
+        }
+        SecretSpecFileInfo info = SecretSpecProjectIndex.getInstance(configuration.getProject()).getInfo(spec);
+        if (info != null && settings.hasProfile() && !info.hasProfile(settings.getProfile())) {
+            throw new RuntimeConfigurationWarning("SecretSpec profile '" + settings.getProfile() +
+                    "' is not defined in " + spec.getPath());
+        }
+    }
+    
     @Override
     protected void readExternal(@NotNull GoRunConfigurationBase<?> runConfiguration, @NotNull Element element)
             throws InvalidDataException {
-        Element settingsElement = element.getChild(SETTINGS_TAG);
-        if (settingsElement != null) {
-            SecretSpecRunSettings settings = SecretSpecRunConfigurationExtensionBase.getOrCreateSettings(runConfiguration);
-            settings.readExternal(settingsElement);
-        }
+        SecretSpecRunConfigurationExtensionBase.readSettings(runConfiguration, element);
     }
     
     @Override
     protected void writeExternal(@NotNull GoRunConfigurationBase<?> runConfiguration, @NotNull Element element)
             throws WriteExternalException {
-        SecretSpecRunSettings settings = SecretSpecRunConfigurationExtensionBase.getSettings(runConfiguration);
-        if (settings != null) {
-            Element settingsElement = new Element(SETTINGS_TAG);
-            settings.writeExternal(settingsElement);
-            element.addContent(settingsElement);
-        }
+        SecretSpecRunConfigurationExtensionBase.writeSettings(runConfiguration, element);
     }
     
     @Override
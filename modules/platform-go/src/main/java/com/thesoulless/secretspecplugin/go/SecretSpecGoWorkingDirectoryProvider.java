@@ -0,0 +1,21 @@
+package com.thesoulless.secretspecplugin.go;
+
+import com.goide.execution.GoRunConfigurationBase;
+import com.intellij.execution.configurations.RunConfiguration;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Working directory lookup for Go run configurations
+ */
+public class SecretSpecGoWorkingDirectoryProvider implements SecretSpecWorkingDirectoryProvider {
+    
+    @Override
+    public @Nullable String getWorkingDirectory(@NotNull RunConfiguration configuration) {
+        if (configuration instanceof GoRunConfigurationBase) {
+            return SecretSpecGoRunConfigurationExtension.getWorkingDirectoryFromConfiguration((GoRunConfigurationBase<?>) configuration);
+        }
+        return null;
+    }
+}
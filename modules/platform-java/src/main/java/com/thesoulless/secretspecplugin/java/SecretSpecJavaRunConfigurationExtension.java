@@ -0,0 +1,91 @@
+package com.thesoulless.secretspecplugin.java;
+
+import com.intellij.execution.CommonJavaRunConfigurationParameters;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.RunConfigurationExtension;
+import com.intellij.execution.configurations.JavaParameters;
+import com.intellij.execution.configurations.RunConfigurationBase;
+import com.intellij.execution.configurations.RunnerSettings;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.util.InvalidDataException;
+import com.intellij.openapi.util.WriteExternalException;
+import com.intellij.openapi.util.text.StringUtil;
+import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecSettingsEditor;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
+import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * SecretSpec for Java run configurations such as Application and JUnit.
+ * The JVM command line is built by the platform after this extension runs, so the secrets are
+ * injected into the Java parameters' environment instead of wrapping the command.
+ */
+public class SecretSpecJavaRunConfigurationExtension extends RunConfigurationExtension {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecJavaRunConfigurationExtension.class);
+
+    @Override
+    protected @NotNull String getEditorTitle() {
+        return "SecretSpec";
+    }
+
+    @Override
+    public boolean isApplicableFor(@NotNull RunConfigurationBase<?> configuration) {
+        return configuration instanceof CommonJavaRunConfigurationParameters;
+    }
+
+    @Override
+    protected <P extends RunConfigurationBase<?>> @Nullable SettingsEditor<P> createEditor(@NotNull P configuration) {
+        return new SecretSpecSettingsEditor<>(configuration.getProject());
+    }
+
+    @Override
+    public <T extends RunConfigurationBase<?>> void updateJavaParameters(@NotNull T configuration,
+                                                                        @NotNull JavaParameters params,
+                                                                        @Nullable RunnerSettings runnerSettings) throws ExecutionException {
+        SecretSpecRunSettings runSettings = SecretSpecRunConfigurationExtensionBase.getSettings(configuration);
+        // Read one consistent snapshot, the settings editor may apply new settings while we launch
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
+        if (settings == null || !settings.isEnabled()) {
+            return;
+        }
+        String workingDirectory = params.getWorkingDirectory();
+        if (StringUtil.isEmptyOrSpaces(workingDirectory)) {
+            workingDirectory = SecretSpecWorkingDirectoryProvider.find(configuration);
+        }
+        if (workingDirectory == null) {
+            LOG.warn("No working directory for " + configuration.getName() + ", SecretSpec secrets are not injected");
+            return;
+        }
+        SecretSpecLaunchPatcher.Outcome outcome =
+                SecretSpecLaunchPatcher.inject(params.getEnv(), workingDirectory, settings, configuration.getProject());
+        SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PATCHED, configuration.getName(),
+                "secrets %s, profile '%s', provider '%s', working directory %s",
+                outcome, settings.getProfile(), settings.getProvider(), workingDirectory);
+    }
+
+    @Override
+    protected void readExternal(@NotNull RunConfigurationBase<?> runConfiguration, @NotNull Element element)
+            throws InvalidDataException {
+        SecretSpecRunConfigurationExtensionBase.readSettings(runConfiguration, element);
+    }
+
+    @Override
+    protected void writeExternal(@NotNull RunConfigurationBase<?> runConfiguration, @NotNull Element element)
+            throws WriteExternalException {
+        SecretSpecRunConfigurationExtensionBase.writeSettings(runConfiguration, element);
+    }
+
+    @Override
+    protected @NotNull String getSerializationId() {
+        return "secretspec-java-extension";
+    }
+}
@@ -0,0 +1,73 @@
+package com.thesoulless.secretspecplugin.python;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.configurations.RunnerSettings;
+import com.intellij.openapi.options.SettingsEditor;
+import com.intellij.openapi.util.InvalidDataException;
+import com.intellij.openapi.util.WriteExternalException;
+import com.jetbrains.python.run.AbstractPythonRunConfiguration;
+import com.jetbrains.python.run.PythonRunConfigurationExtension;
+import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecSettingsEditor;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.execution.SecretSpecLaunchPatcher;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * SecretSpec for Python run configurations, patched through the shared launch patcher
+ */
+public class SecretSpecPythonRunConfigurationExtension extends PythonRunConfigurationExtension {
+
+    @Override
+    protected @NotNull String getEditorTitle() {
+        return "SecretSpec";
+    }
+
+    @Override
+    public boolean isApplicableFor(@NotNull AbstractPythonRunConfiguration<?> configuration) {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabledFor(@NotNull AbstractPythonRunConfiguration<?> configuration, @Nullable RunnerSettings runnerSettings) {
+        return true;
+    }
+
+    @Override
+    protected <P extends AbstractPythonRunConfiguration<?>> @Nullable SettingsEditor<P> createEditor(@NotNull P configuration) {
+        return new SecretSpecSettingsEditor<>(configuration.getProject());
+    }
+
+    @Override
+    protected void patchCommandLine(@NotNull AbstractPythonRunConfiguration<?> configuration,
+                                   @Nullable RunnerSettings runnerSettings,
+                                   @NotNull GeneralCommandLine cmdLine,
+                                   @NotNull String runnerId) {
+        // The debugger connects back to the IDE, so a wrapped interpreter can be debugged as well
+        SecretSpecLaunchPatcher.Outcome outcome = SecretSpecRunConfigurationExtensionBase.patchCommandLine(configuration, cmdLine);
+        if (outcome != null) {
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.PATCHED, configuration.getName(),
+                    "%s, secrets %s, command: %s", runnerId, outcome, cmdLine.getCommandLineList(null));
+        }
+    }
+
+    @Override
+    protected void readExternal(@NotNull AbstractPythonRunConfiguration<?> runConfiguration, @NotNull Element element)
+            throws InvalidDataException {
+        SecretSpecRunConfigurationExtensionBase.readSettings(runConfiguration, element);
+    }
+
+    @Override
+    protected void writeExternal(@NotNull AbstractPythonRunConfiguration<?> runConfiguration, @NotNull Element element)
+            throws WriteExternalException {
+        SecretSpecRunConfigurationExtensionBase.writeSettings(runConfiguration, element);
+    }
+
+    @Override
+    protected @NotNull String getSerializationId() {
+        return "secretspec-python-extension";
+    }
+}
@@ -1,50 +1,75 @@
 package com.thesoulless.secretspecplugin.listener;
 
 import com.intellij.execution.ExecutionListener;
+import com.intellij.execution.configurations.RunConfiguration;
 import com.intellij.execution.configurations.RunConfigurationBase;
 import com.intellij.execution.configurations.RunProfile;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.runners.ExecutionEnvironment;
-import com.intellij.execution.ExecutionException;
-import com.intellij.execution.configurations.GeneralCommandLine;
-import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.project.Project;
 import com.thesoulless.secretspecplugin.api.SecretSpecRunConfigurationExtensionBase;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
 import com.thesoulless.secretspecplugin.common.SecretSpecRunSettings;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import com.thesoulless.secretspecplugin.metrics.SecretSpecMetrics;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecResolver;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Execution listener that logs when applications are executed with SecretSpec
- * Now works with the tab-based SecretSpec configuration
+ * Execution listener that records SecretSpec-enabled launches in the diagnostics buffer
+ * and how long they take from scheduled to started
  */
 public class SecretSpecExecutionListener implements ExecutionListener {
     
-    private static final Logger LOG = Logger.getInstance(SecretSpecExecutionListener.class);
+    // Execution id -> System.nanoTime() when the launch was scheduled
+    private final Map<Long, Long> scheduledAt = new ConcurrentHashMap<>();
     
     @Override
     public void processStartScheduled(@NotNull String executorId, @NotNull ExecutionEnvironment env) {
         SecretSpecRunSettings settings = getSecretSpecSettings(env);
         if (settings != null && settings.isEnabled()) {
-            String configType = getConfigurationType(env);
-            LOG.info("SecretSpec-enabled execution scheduled: " + env.getRunProfile().getName() + " (" + configType + ")");
+            scheduledAt.put(env.getExecutionId(), System.nanoTime());
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.SCHEDULED, env.getRunProfile().getName(),
+                    "%s, executor %s", getConfigurationType(env), executorId);
+        }
+    }
+    
+    @Override
+    public void processNotStarted(@NotNull String executorId, @NotNull ExecutionEnvironment env) {
+        scheduledAt.remove(env.getExecutionId());
+        // Secrets prefetched while a build ran that failed or was cancelled must not reach a later launch
+        SecretSpecRunSettings runSettings = getSecretSpecSettings(env);
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
+        if (settings != null && settings.isEnabled() && env.getRunProfile() instanceof RunConfiguration) {
+            String workingDirectory = SecretSpecWorkingDirectoryProvider.find((RunConfiguration) env.getRunProfile());
+            if (workingDirectory != null) {
+                SecretSpecResolver.getInstance().discardPrefetch(SecretSpecCacheKey.create(workingDirectory, settings, env.getProject()));
+            }
         }
     }
     
     @Override
     public void processStarted(@NotNull String executorId, @NotNull ExecutionEnvironment env, @NotNull ProcessHandler handler) {
-        SecretSpecRunSettings settings = getSecretSpecSettings(env);
+        Long scheduled = scheduledAt.remove(env.getExecutionId());
+        SecretSpecRunSettings runSettings = getSecretSpecSettings(env);
+        SecretSpecSettingsSnapshot settings = runSettings != null ? runSettings.snapshot() : null;
         if (settings != null && settings.isEnabled()) {
-            String commandPrefix = settings.buildCommandPrefix();
-            String configType = getConfigurationType(env);
-            LOG.info("Process started with SecretSpec integration: " + commandPrefix + " (type: " + configType + ")");
-            
-            // Log the configuration for debugging
-            Project project = env.getProject();
-            if (project != null) {
-                LOG.info("Project: " + project.getName() + 
-                        ", Profile: " + settings.getProfile() + 
-                        ", Provider: " + settings.getProvider());
+            if (scheduled != null) {
+                SecretSpecMetrics.getInstance().recordLaunch(env.getRunProfile().getName(), System.nanoTime() - scheduled);
             }
+            // Report secretspec failures as soon as they are printed instead of after the run
+            if (SecretSpecStartupOutputListener.isWrapped(handler)) {
+                handler.addProcessListener(new SecretSpecStartupOutputListener(env));
+            }
+            
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.STARTED, env.getRunProfile().getName(),
+                    "%s in project %s, profile '%s', provider '%s'",
+                    getConfigurationType(env), env.getProject().getName(), settings.getProfile(), settings.getProvider());
         }
     }
     
@@ -55,8 +80,8 @@ public class SecretSpecExecutionListener implements ExecutionListener {
                                  int exitCode) {
         SecretSpecRunSettings settings = getSecretSpecSettings(env);
         if (settings != null && settings.isEnabled()) {
-            String configType = getConfigurationType(env);
-            LOG.info("SecretSpec-enabled process terminated with exit code: " + exitCode + " (type: " + configType + ")");
+            SecretSpecDiagnostics.getInstance().record(SecretSpecDiagnosticEvent.Kind.TERMINATED, env.getRunProfile().getName(),
+                    "exit code %d", exitCode);
         }
     }
     
@@ -0,0 +1,119 @@
+package com.thesoulless.secretspecplugin.listener;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecResolver;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evicts cached SecretSpec resolutions when secretspec.toml or a dotenv file changes.
+ * Only entries whose working directory lies at or below the changed file's directory
+ * (or whose dotenv provider points at the file) are dropped.
+ * Spec lookups of {@link SecretSpecLocator} are dropped when a spec or a directory is created, moved or deleted.
+ */
+public class SecretSpecFileChangeListener implements BulkFileListener {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecFileChangeListener.class);
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        List<String> changedPaths = null;
+        for (VFileEvent event : events) {
+            invalidateSpecLocations(event);
+            String path = getRelevantPath(event.getPath());
+            String oldPath = getOldPath(event);
+            oldPath = oldPath != null ? getRelevantPath(oldPath) : null;
+            if (path == null && oldPath == null) {
+                continue;
+            }
+            if (changedPaths == null) {
+                changedPaths = new ArrayList<>();
+            }
+            if (path != null) {
+                changedPaths.add(path);
+            }
+            if (oldPath != null) {
+                changedPaths.add(oldPath);
+            }
+        }
+
+        if (changedPaths != null) {
+            List<String> paths = changedPaths;
+            LOG.info("SecretSpec files changed: " + paths);
+            SecretSpecResolver.getInstance().invalidate(key -> paths.stream().anyMatch(path -> isAffected(key, path)));
+        }
+    }
+
+    /**
+     * A spec appearing or disappearing changes the nearest spec of every directory below it,
+     * a moved or deleted directory invalidates the lookups of its subtree
+     */
+    private static void invalidateSpecLocations(@NotNull VFileEvent event) {
+        if (event instanceof VFileContentChangeEvent) {
+            return; // The spec stays where it is
+        }
+        String oldPath = getOldPath(event);
+        SecretSpecLocator locator = SecretSpecLocator.getInstance();
+        if (SecretSpecFileInfo.FILE_NAME.equals(getName(event.getPath())) ||
+                (oldPath != null && SecretSpecFileInfo.FILE_NAME.equals(getName(oldPath)))) {
+            locator.invalidateUnder(getParent(event.getPath()));
+            if (oldPath != null) {
+                locator.invalidateUnder(getParent(oldPath));
+            }
+        } else if ((event instanceof VFileDeleteEvent || oldPath != null) && event.getFile() != null && event.getFile().isDirectory()) {
+            locator.invalidateUnder(oldPath != null ? oldPath : event.getPath());
+        }
+    }
+
+    private static @Nullable String getOldPath(@NotNull VFileEvent event) {
+        if (event instanceof VFileMoveEvent) {
+            return ((VFileMoveEvent) event).getOldPath();
+        }
+        if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+            return ((VFilePropertyChangeEvent) event).getOldPath();
+        }
+        return null;
+    }
+
+    private static @NotNull String getName(@NotNull String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static @NotNull String getParent(@NotNull String path) {
+        return path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+    }
+
+    private static @Nullable String getRelevantPath(@NotNull String path) {
+        return isSpecOrDotenv(getName(path)) ? path : null;
+    }
+
+    private static boolean isSpecOrDotenv(@NotNull String fileName) {
+        return SecretSpecFileInfo.FILE_NAME.equals(fileName) ||
+                ".env".equals(fileName) ||
+                fileName.startsWith(".env.") ||
+                fileName.endsWith(".env");
+    }
+
+    private static boolean isAffected(@NotNull SecretSpecCacheKey key, @NotNull String changedPath) {
+        // A dotenv provider may reference the file explicitly, e.g. dotenv:/path/to/.env
+        if (key.getProvider().contains(changedPath) ||
+                key.getProvider().contains(FileUtil.toSystemDependentName(changedPath))) {
+            return true;
+        }
+        String directory = getParent(changedPath);
+        return !directory.isEmpty() && key.isUnder(directory);
+    }
+}
@@ -0,0 +1,36 @@
+package com.thesoulless.secretspecplugin.listener;
+
+import com.intellij.execution.RunManager;
+import com.intellij.execution.RunnerAndConfigurationSettings;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecExecutable;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecPrewarmService;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.stream.Collectors;
+
+/**
+ * Pre-warms SecretSpec secrets of enabled run configurations when a project is opened,
+ * starting with the selected one
+ */
+public class SecretSpecPrewarmStartupActivity implements StartupActivity.DumbAware {
+    
+    @Override
+    public void runActivity(@NotNull Project project) {
+        // Locate and probe secretspec now, so launches only check that the binary is unchanged
+        ApplicationManager.getApplication().executeOnPooledThread(() -> SecretSpecExecutable.getInstance().getCapabilities());
+        
+        RunManager runManager = RunManager.getInstance(project);
+        SecretSpecPrewarmService prewarmService = SecretSpecPrewarmService.getInstance(project);
+        
+        RunnerAndConfigurationSettings selected = runManager.getSelectedConfiguration();
+        if (selected != null) {
+            prewarmService.prewarm(selected.getConfiguration());
+        }
+        prewarmService.prewarmAll(runManager.getAllSettings().stream()
+                .map(RunnerAndConfigurationSettings::getConfiguration)
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,27 @@
+package com.thesoulless.secretspecplugin.listener;
+
+import com.intellij.execution.RunManagerListener;
+import com.intellij.execution.RunnerAndConfigurationSettings;
+import com.intellij.openapi.project.Project;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecPrewarmService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pre-warms SecretSpec secrets when a run configuration is selected in the toolbar
+ */
+public class SecretSpecRunManagerListener implements RunManagerListener {
+    
+    private final Project project;
+    
+    public SecretSpecRunManagerListener(@NotNull Project project) {
+        this.project = project;
+    }
+    
+    @Override
+    public void runConfigurationSelected(@Nullable RunnerAndConfigurationSettings settings) {
+        if (settings != null) {
+            SecretSpecPrewarmService.getInstance(project).prewarmSelected(settings.getConfiguration());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.thesoulless.secretspecplugin.listener;
+
+import com.intellij.execution.configurations.RunConfiguration;
+import com.intellij.execution.process.BaseProcessHandler;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.runners.ExecutionUtil;
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.thesoulless.secretspecplugin.api.SecretSpecWorkingDirectoryProvider;
+import com.thesoulless.secretspecplugin.common.SecretSpecNotifications;
+import com.thesoulless.secretspecplugin.execution.SecretSpecFailure;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecResolver;
+import com.thesoulless.secretspecplugin.spec.SecretSpecLocator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Watches the error output of a 'secretspec run' wrapper while it starts up and reports failures
+ * such as a missing secret or an expired provider login as soon as the line arrives.
+ * The wrapped program shares the wrapper's output, so only secretspec's own error reports are
+ * classified, and watching stops at the first line the program writes.
+ */
+public class SecretSpecStartupOutputListener extends ProcessAdapter {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecStartupOutputListener.class);
+    // secretspec reports its errors before the wrapped program runs, so only the start of the output is watched
+    private static final int WATCHED_CHARS = 16 * 1024;
+    private static final long WATCHED_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final Pattern WRAPPER_COMMAND = Pattern.compile("^\"?([^\"]*[/\\\\])?secretspec(\\.exe)?\"? run( .*)?$");
+
+    private final ExecutionEnvironment environment;
+    private final long startedAt = System.nanoTime();
+    private final StringBuilder line = new StringBuilder();
+    private int watchedChars;
+    private boolean watching = true;
+    private boolean inReport;
+
+    public SecretSpecStartupOutputListener(@NotNull ExecutionEnvironment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Whether the process is the secretspec wrapper, as opposed to a launch the plugin injected secrets into
+     */
+    public static boolean isWrapped(@NotNull ProcessHandler handler) {
+        return handler instanceof BaseProcessHandler &&
+                WRAPPER_COMMAND.matcher(((BaseProcessHandler<?>) handler).getCommandLine()).matches();
+    }
+
+    @Override
+    public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+        if (ProcessOutputTypes.SYSTEM.equals(outputType)) {
+            return;
+        }
+        synchronized (line) {
+            if (!watching) {
+                return;
+            }
+            if (!ProcessOutputTypes.STDERR.equals(outputType)) {
+                watching = false; // secretspec writes nothing to stdout, the program has started
+                return;
+            }
+            String text = event.getText();
+            watchedChars += text.length();
+            for (int i = 0; i < text.length() && watching; i++) {
+                char c = text.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    inspectLine();
+                } else {
+                    line.append(c);
+                }
+            }
+            if (watchedChars > WATCHED_CHARS || System.nanoTime() - startedAt > WATCHED_NANOS) {
+                watching = false;
+            }
+        }
+    }
+
+    @Override
+    public void processTerminated(@NotNull ProcessEvent event) {
+        synchronized (line) {
+            if (watching) {
+                inspectLine(); // Last line without a line break
+                watching = false;
+            }
+        }
+    }
+
+    private void inspectLine() {
+        String text = line.toString();
+        line.setLength(0);
+        if (text.trim().isEmpty()) {
+            return;
+        }
+        if (SecretSpecFailure.isReportStart(text)) {
+            inReport = true;
+        } else if (!inReport || !SecretSpecFailure.isReportContinuation(text)) {
+            watching = false; // Not secretspec's own output, the program has taken over
+            return;
+        }
+        SecretSpecFailure classified = SecretSpecFailure.classify(text);
+        if (classified != null) {
+            watching = false;
+            LOG.info("SecretSpec startup failure in " + environment.getRunProfile().getName() + ": " + classified);
+            notifyFailure(classified);
+        }
+    }
+
+    private void notifyFailure(@NotNull SecretSpecFailure failure) {
+        String content = StringUtil.escapeXmlEntities(failure.getMessage()) + "<br/>" + getHint(failure);
+        Notification notification = SecretSpecNotifications.create("SecretSpec: " + failure.getKind().getTitle(), content,
+                failure.getKind().isTransient() ? NotificationType.WARNING : NotificationType.ERROR);
+
+        notification.addAction(NotificationAction.createSimpleExpiring("Retry", this::retry));
+        VirtualFile spec = findSpec();
+        if (spec != null && failure.getKind() != SecretSpecFailure.Kind.PROVIDER_AUTH) {
+            notification.addAction(NotificationAction.createSimpleExpiring("Open secretspec.toml",
+                    () -> openSpec(spec, failure.getSecretName())));
+        }
+        notification.notify(environment.getProject());
+    }
+
+    private @NotNull String getHint(@NotNull SecretSpecFailure failure) {
+        switch (failure.getKind()) {
+            case MISSING_SECRET:
+                String name = failure.getSecretName() != null ? failure.getSecretName() : "the secret";
+                return "Store " + name + " in the provider or give it a default in secretspec.toml.";
+            case UNKNOWN_PROFILE:
+                return "Check the profile in the run configuration's SecretSpec tab.";
+            case PROVIDER_AUTH:
+                return "Sign in to the secret provider, then retry.";
+            default:
+                return "The provider may be temporarily unreachable. Retry once it is back.";
+        }
+    }
+
+    /**
+     * Drop cached secrets for the configuration's directory and run it again
+     */
+    private void retry() {
+        String workingDirectory = getWorkingDirectory();
+        if (workingDirectory != null) {
+            SecretSpecResolver.getInstance().invalidate(key -> key.isUnder(workingDirectory) || key.appliesTo(workingDirectory));
+        }
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (!environment.getProject().isDisposed()) {
+                ExecutionUtil.restart(environment);
+            }
+        });
+    }
+
+    private @Nullable String getWorkingDirectory() {
+        return environment.getRunProfile() instanceof RunConfiguration ?
+                SecretSpecWorkingDirectoryProvider.find((RunConfiguration) environment.getRunProfile()) : null;
+    }
+
+    private @Nullable VirtualFile findSpec() {
+        String workingDirectory = getWorkingDirectory();
+        return workingDirectory != null ? SecretSpecLocator.getInstance().findSpec(workingDirectory) : null;
+    }
+
+    private void openSpec(@NotNull VirtualFile spec, @Nullable String secretName) {
+        int offset = 0;
+        if (secretName != null) {
+            try {
+                offset = Math.max(0, VfsUtilCore.loadText(spec).indexOf(secretName));
+            } catch (IOException e) {
+                LOG.debug("Cannot read " + spec.getPath(), e);
+            }
+        }
+        new OpenFileDescriptor(environment.getProject(), spec, offset).navigate(true);
+    }
+}
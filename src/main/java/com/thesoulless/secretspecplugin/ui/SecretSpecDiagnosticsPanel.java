@@ -0,0 +1,163 @@
+package com.thesoulless.secretspecplugin.ui;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.Alarm;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnosticEvent;
+import com.thesoulless.secretspecplugin.diagnostics.SecretSpecDiagnostics;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.table.AbstractTableModel;
+import java.awt.datatransfer.StringSelection;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * "Diagnostics" tab of the SecretSpec tool window: the buffered launch events, newest first,
+ * with actions to copy or export them as a report
+ */
+final class SecretSpecDiagnosticsPanel extends SimpleToolWindowPanel {
+
+    private static final Logger LOG = Logger.getInstance(SecretSpecDiagnosticsPanel.class);
+    private static final int REFRESH_INTERVAL_MILLIS = 2000;
+    private static final String[] COLUMNS = {"Time", "Event", "Configuration / Directory", "Details"};
+
+    private final Project project;
+    private final EventTableModel model = new EventTableModel();
+    final Alarm alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD);
+    private long shownCount = -1;
+
+    SecretSpecDiagnosticsPanel(@NotNull Project project) {
+        super(true, true);
+        this.project = project;
+        JBTable table = new JBTable(model);
+        table.getColumnModel().getColumn(3).setPreferredWidth(600);
+        setContent(ScrollPaneFactory.createScrollPane(table));
+
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new DumbAwareAction("Refresh", "Refresh SecretSpec diagnostics", AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                refresh();
+            }
+        });
+        group.add(new DumbAwareAction("Copy Report", "Copy the SecretSpec diagnostics report to the clipboard", AllIcons.Actions.Copy) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                CopyPasteManager.getInstance().setContents(new StringSelection(SecretSpecDiagnostics.getInstance().renderReport()));
+            }
+        });
+        group.add(new DumbAwareAction("Export Report", "Save the SecretSpec diagnostics report to a file", AllIcons.ToolbarDecorator.Export) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                exportReport();
+            }
+        });
+        group.add(new DumbAwareAction("Clear", "Clear the buffered SecretSpec launch events", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                SecretSpecDiagnostics.getInstance().clear();
+                refresh();
+            }
+        });
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("SecretSpecDiagnostics", group, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+    }
+
+    void scheduleRefresh() {
+        if (isShowing()) {
+            refresh();
+        }
+        alarm.addRequest(this::scheduleRefresh, REFRESH_INTERVAL_MILLIS);
+    }
+
+    private void refresh() {
+        SecretSpecDiagnostics diagnostics = SecretSpecDiagnostics.getInstance();
+        long recorded = diagnostics.getRecordedCount();
+        if (recorded == shownCount) {
+            return;
+        }
+        shownCount = recorded;
+        List<SecretSpecDiagnosticEvent> events = diagnostics.getEvents();
+        Collections.reverse(events);
+        model.setEvents(events);
+    }
+
+    private void exportReport() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export SecretSpec Diagnostics", "Save the report as a text file", "txt");
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save("secretspec-diagnostics.txt");
+        if (target == null) {
+            return;
+        }
+        try {
+            Files.writeString(target.getFile().toPath(), SecretSpecDiagnostics.getInstance().renderReport(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOG.warn("Could not export SecretSpec diagnostics", e);
+            Messages.showErrorDialog(project, "Could not write " + target.getFile() + ": " + e.getMessage(), "SecretSpec Diagnostics");
+        }
+    }
+
+    /**
+     * Renders an event's message only when its cell is painted
+     */
+    private static final class EventTableModel extends AbstractTableModel {
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        private List<SecretSpecDiagnosticEvent> events = Collections.emptyList();
+
+        void setEvents(@NotNull List<SecretSpecDiagnosticEvent> events) {
+            this.events = events;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return events.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SecretSpecDiagnosticEvent event = events.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(event.getTimeMillis()));
+                case 1:
+                    return event.getKind();
+                case 2:
+                    return event.getSubject();
+                default:
+                    return event.getMessage();
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.thesoulless.secretspecplugin.ui;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.Alarm;
+import com.thesoulless.secretspecplugin.metrics.LatencyHistogram;
+import com.thesoulless.secretspecplugin.metrics.SecretSpecMetrics;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecScheduler;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.Map;
+
+/**
+ * Tool window showing SecretSpec launch-latency percentiles and cache effectiveness,
+ * and the recent launch events in a diagnostics tab
+ */
+public class SecretSpecMetricsToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    private static final int REFRESH_INTERVAL_MILLIS = 2000;
+    private static final String[] COLUMNS = {"Metric", "Count", "p50 (ms)", "p90 (ms)", "p99 (ms)", "Max (ms)", "Mean (ms)"};
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        MetricsPanel panel = new MetricsPanel();
+        Content content = ContentFactory.getInstance().createContent(panel, "Launch Latency", false);
+        Disposer.register(content, panel.alarm);
+        toolWindow.getContentManager().addContent(content);
+        panel.scheduleRefresh();
+
+        SecretSpecDiagnosticsPanel diagnostics = new SecretSpecDiagnosticsPanel(project);
+        Content diagnosticsContent = ContentFactory.getInstance().createContent(diagnostics, "Diagnostics", false);
+        Disposer.register(diagnosticsContent, diagnostics.alarm);
+        toolWindow.getContentManager().addContent(diagnosticsContent);
+        diagnostics.scheduleRefresh();
+    }
+
+    private static final class MetricsPanel extends SimpleToolWindowPanel {
+
+        private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        private final Alarm alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD);
+
+        MetricsPanel() {
+            super(true, true);
+            JBTable table = new JBTable(model);
+            table.setAutoCreateRowSorter(true);
+            setContent(ScrollPaneFactory.createScrollPane(table));
+
+            DefaultActionGroup group = new DefaultActionGroup();
+            group.add(new DumbAwareAction("Refresh", "Refresh SecretSpec metrics", AllIcons.Actions.Refresh) {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent e) {
+                    refresh();
+                }
+            });
+            group.add(new DumbAwareAction("Reset", "Clear all recorded SecretSpec metrics", AllIcons.Actions.GC) {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent e) {
+                    SecretSpecMetrics.getInstance().reset();
+                    refresh();
+                }
+            });
+            ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("SecretSpecMetrics", group, true);
+            toolbar.setTargetComponent(this);
+            setToolbar(toolbar.getComponent());
+        }
+
+        void scheduleRefresh() {
+            refresh();
+            alarm.addRequest(this::scheduleRefresh, REFRESH_INTERVAL_MILLIS);
+        }
+
+        private void refresh() {
+            if (!isShowing() && model.getRowCount() > 0) {
+                return; // Nothing to update while the tool window is hidden
+            }
+            SecretSpecMetrics metrics = SecretSpecMetrics.getInstance();
+            model.setRowCount(0);
+            for (Map.Entry<String, LatencyHistogram> entry : metrics.getAllHistograms().entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                model.addRow(new Object[]{
+                        entry.getKey(),
+                        histogram.getCount(),
+                        toMillis(histogram.getPercentileMicros(50)),
+                        toMillis(histogram.getPercentileMicros(90)),
+                        toMillis(histogram.getPercentileMicros(99)),
+                        toMillis(histogram.getMaxMicros()),
+                        toMillis(histogram.getMeanMicros())
+                });
+            }
+            long hits = metrics.getCacheHits();
+            long misses = metrics.getCacheMisses();
+            model.addRow(new Object[]{"Cache hits", hits, null, null, null, null, null});
+            model.addRow(new Object[]{"Cache misses", misses, null, null, null, null, null});
+            long total = hits + misses;
+            model.addRow(new Object[]{"Cache hit rate", total > 0 ? String.format("%.1f%%", 100.0 * hits / total) : "-",
+                    null, null, null, null, null});
+            SecretSpecScheduler scheduler = SecretSpecScheduler.getInstance();
+            for (SecretSpecScheduler.Priority priority : SecretSpecScheduler.Priority.values()) {
+                String lane = priority.getDisplayName();
+                model.addRow(new Object[]{"Queued now: " + lane, scheduler.getQueueDepth(priority), null, null, null, null, null});
+                model.addRow(new Object[]{"Queued peak: " + lane, metrics.getPeakQueueDepth(lane), null, null, null, null, null});
+            }
+        }
+
+        private static String toMillis(long micros) {
+            return String.format("%.1f", micros / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.thesoulless.secretspecplugin.common;
+
+import com.intellij.openapi.ui.ValidationInfo;
+import org.junit.Test;
+
+import javax.swing.JLabel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SecretSpecSettingsPanelTest {
+
+    private final JLabel field = new JLabel();
+
+    @Test
+    public void acceptsDotenvPath() {
+        assertNull(SecretSpecSettingsPanel.validateProvider("dotenv:/x", field));
+    }
+
+    @Test
+    public void acceptsProviderUri() {
+        assertNull(SecretSpecSettingsPanel.validateProvider("onepassword://vault", field));
+    }
+
+    @Test
+    public void acceptsPlainName() {
+        assertNull(SecretSpecSettingsPanel.validateProvider("keyring", field));
+        assertNull("No provider uses the default one", SecretSpecSettingsPanel.validateProvider("", field));
+    }
+
+    @Test
+    public void warnsAboutUnknownScheme() {
+        ValidationInfo info = SecretSpecSettingsPanel.validateProvider("vault:/secret/app", field);
+
+        assertNotNull(info);
+        assertEquals("Unknown provider 'vault'. Known providers: keyring, onepassword, dotenv, env, lastpass", info.message);
+    }
+}
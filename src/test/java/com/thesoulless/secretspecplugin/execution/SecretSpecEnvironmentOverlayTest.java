@@ -0,0 +1,40 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class SecretSpecEnvironmentOverlayTest {
+
+    @Test
+    public void secretsWinOverExistingVariables() {
+        Map<String, String> environment = new HashMap<>(Map.of("APP_ENV", "local", "TOKEN", "old"));
+
+        int changed = SecretSpecEnvironmentOverlay.inject(environment, Map.of("TOKEN", "new", "PASSWORD", "pw"));
+
+        assertEquals(2, changed);
+        assertEquals(Map.of("APP_ENV", "local", "TOKEN", "new", "PASSWORD", "pw"), environment);
+    }
+
+    @Test
+    public void unchangedValuesAreNotCounted() {
+        Map<String, String> environment = new HashMap<>(Map.of("TOKEN", "same"));
+
+        assertEquals(0, SecretSpecEnvironmentOverlay.inject(environment, Map.of("TOKEN", "same")));
+    }
+
+    @Test
+    public void injectsIntoCommandLineVariablesOnly() {
+        GeneralCommandLine cmdLine = new GeneralCommandLine("/tmp/app");
+        cmdLine.getEnvironment().put("APP_ENV", "local");
+
+        SecretSpecEnvironmentOverlay.inject(cmdLine, Map.of("TOKEN", "secret"));
+
+        // The parent environment is merged in by the launcher, not copied into the command line
+        assertEquals(Map.of("APP_ENV", "local", "TOKEN", "secret"), cmdLine.getEnvironment());
+    }
+}
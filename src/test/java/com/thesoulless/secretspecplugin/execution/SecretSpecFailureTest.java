@@ -0,0 +1,59 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SecretSpecFailureTest {
+
+    @Test
+    public void classifiesMissingSecretWithItsName() {
+        SecretSpecFailure failure = SecretSpecFailure.classify("Error: missing required secret 'DATABASE_URL'");
+
+        assertEquals(SecretSpecFailure.Kind.MISSING_SECRET, failure.getKind());
+        assertEquals("DATABASE_URL", failure.getSecretName());
+    }
+
+    @Test
+    public void ignoresCapitalizedWordsAsSecretName() {
+        SecretSpecFailure failure = SecretSpecFailure.classify("Error: Secret not found in Keyring");
+
+        assertEquals(SecretSpecFailure.Kind.MISSING_SECRET, failure.getKind());
+        assertNull(failure.getSecretName());
+    }
+
+    @Test
+    public void classifiesProviderFailures() {
+        assertEquals(SecretSpecFailure.Kind.UNKNOWN_PROFILE, SecretSpecFailure.classify("Error: unknown profile staging").getKind());
+        assertEquals(SecretSpecFailure.Kind.PROVIDER_AUTH, SecretSpecFailure.classify("Error: not signed in to 1Password").getKind());
+        assertEquals(SecretSpecFailure.Kind.PROVIDER_UNAVAILABLE, SecretSpecFailure.classify("Error: connection refused").getKind());
+        assertTrue(SecretSpecFailure.Kind.PROVIDER_UNAVAILABLE.isTransient());
+        assertFalse(SecretSpecFailure.Kind.PROVIDER_AUTH.isTransient());
+    }
+
+    @Test
+    public void returnsNullForUnrelatedOrEmptyLines() {
+        assertNull(SecretSpecFailure.classify("Loaded 3 secrets"));
+        assertNull(SecretSpecFailure.classify("   "));
+    }
+
+    @Test
+    public void recognizesSecretSpecReports() {
+        assertTrue(SecretSpecFailure.isReportStart("Error: missing required secret"));
+        assertTrue(SecretSpecFailure.isReportStart("error[E0001]: provider failed"));
+        assertTrue(SecretSpecFailure.isReportStart("secretspec: unknown profile"));
+        assertTrue(SecretSpecFailure.isReportContinuation("Caused by:"));
+        assertTrue(SecretSpecFailure.isReportContinuation("    0: connection refused"));
+    }
+
+    @Test
+    public void programOutputIsNotAReport() {
+        // Written by the wrapped program, must not be taken for a secretspec failure
+        assertFalse(SecretSpecFailure.isReportStart("2024-01-01 WARN connection refused by upstream"));
+        assertFalse(SecretSpecFailure.isReportStart("Traceback (most recent call last):"));
+        assertFalse(SecretSpecFailure.isReportContinuation("permission denied: /var/run/app.sock"));
+    }
+}
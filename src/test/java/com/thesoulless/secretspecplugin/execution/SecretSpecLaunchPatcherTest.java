@@ -0,0 +1,29 @@
+package com.thesoulless.secretspecplugin.execution;
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class SecretSpecLaunchPatcherTest extends BasePlatformTestCase {
+
+    private static final Map<String, String> SECRETS = new LinkedHashMap<>(Map.of("DATABASE_URL", "postgres://db", "API_TOKEN", "token"));
+
+    public void testKeepsOnlyUsedSecrets() {
+        assertEquals(Map.of("API_TOKEN", "token"), SecretSpecLaunchPatcher.filterUsed(SECRETS, Set.of("API_TOKEN", "HOME")));
+    }
+
+    public void testUnknownUsageKeepsAllSecrets() {
+        assertSame(SECRETS, SecretSpecLaunchPatcher.filterUsed(SECRETS, null));
+    }
+
+    public void testNoneUsedKeepsAllSecrets() {
+        // The analysis most likely missed how the secrets are read
+        assertSame(SECRETS, SecretSpecLaunchPatcher.filterUsed(SECRETS, Set.of("HOME")));
+    }
+
+    public void testNoSecrets() {
+        assertEquals(Map.of(), SecretSpecLaunchPatcher.filterUsed(Map.of(), Set.of("API_TOKEN")));
+    }
+}
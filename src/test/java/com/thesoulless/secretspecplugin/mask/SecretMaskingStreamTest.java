@@ -0,0 +1,74 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SecretMaskingStreamTest {
+
+    private static final String MASK = SecretMaskingStream.MASK;
+
+    @Test
+    public void masksValueInsideChunk() {
+        SecretMaskingStream stream = stream("secretvalue");
+
+        assertEquals("token=" + MASK + "\n", stream.process("token=secretvalue\n"));
+    }
+
+    @Test
+    public void leavesUnrelatedOutputUnchanged() {
+        SecretMaskingStream stream = stream("secretvalue");
+
+        assertNull(stream.process("nothing to hide here\n"));
+        assertEquals(0, stream.getPendingLength());
+    }
+
+    @Test
+    public void masksValueSplitAcrossChunks() {
+        SecretMaskingStream stream = stream("secretvalue");
+
+        // The possible start of the value is held back until the next chunk decides it
+        assertEquals("abc ", stream.process("abc secr"));
+        assertEquals(4, stream.getPendingLength());
+        assertEquals(MASK + " end", stream.process("etvalue end"));
+        assertEquals(0, stream.getPendingLength());
+    }
+
+    @Test
+    public void flushReleasesHeldBackPrefix() {
+        SecretMaskingStream stream = stream("secretvalue");
+
+        assertEquals("xx ", stream.process("xx secr"));
+        assertEquals("secr", stream.flush());
+        assertEquals(0, stream.getPendingLength());
+    }
+
+    @Test
+    public void adjacentValuesShareOneMask() {
+        SecretMaskingStream stream = stream("secretvalue", "othersecret");
+
+        assertEquals("[" + MASK + "]", stream.process("[secretvalueothersecret]"));
+    }
+
+    @Test
+    public void emptyAutomatonPassesEverythingThrough() {
+        SecretMaskingStream stream = new SecretMaskingStream(SecretMaskingAutomaton.EMPTY);
+
+        assertNull(stream.process("secretvalue"));
+    }
+
+    @Test
+    public void automatonCountsItsValues() {
+        SecretMaskingAutomaton automaton = SecretMaskingAutomaton.build(List.of("secretvalue", "othersecret"));
+
+        assertEquals(2, automaton.getValueCount());
+        assertEquals(0, SecretMaskingAutomaton.EMPTY.getValueCount());
+    }
+
+    private static SecretMaskingStream stream(String... values) {
+        return new SecretMaskingStream(SecretMaskingAutomaton.build(List.of(values)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.thesoulless.secretspecplugin.mask;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SecretSpecMaskingServiceTest {
+
+    private static final int LIMIT = 32 * 1024;
+
+    @Test
+    public void ignoresShortValues() {
+        SecretSpecMaskingService service = new SecretSpecMaskingService();
+
+        service.register(List.of("1", "true", "secretvalue"));
+
+        assertEquals(List.of("true", "secretvalue"), service.getValues());
+    }
+
+    @Test
+    public void evictsLeastRecentlyInjectedValuesWhenFull() {
+        SecretSpecMaskingService service = new SecretSpecMaskingService();
+        String first = value('a', LIMIT / 2);
+        String second = value('b', LIMIT / 2);
+        String third = value('c', LIMIT / 2);
+
+        service.register(List.of(first, second));
+        // Injected again, so the second value is the oldest now
+        service.register(List.of(first));
+        service.register(List.of(third));
+
+        assertEquals(List.of(first, third), service.getValues());
+        assertEquals(2, service.getAutomaton().getValueCount());
+    }
+
+    @Test
+    public void neverEvictsValuesOfTheCurrentLaunch() {
+        SecretSpecMaskingService service = new SecretSpecMaskingService();
+        String older = value('o', LIMIT / 4);
+        String first = value('a', LIMIT / 2);
+        String second = value('b', LIMIT / 2);
+        String third = value('c', LIMIT / 4);
+        service.register(List.of(older));
+
+        service.register(List.of(first, second, third));
+
+        // The third value doesn't fit next to the first two and is left out instead of evicting them
+        assertEquals(List.of(first, second), service.getValues());
+    }
+
+    @Test
+    public void newValuesAreMaskedAfterManyLaunches() {
+        SecretSpecMaskingService service = new SecretSpecMaskingService();
+        for (int launch = 0; launch < 1000; launch++) {
+            service.register(List.of("rotated-token-" + launch + "-" + value('x', 64)));
+        }
+
+        String latest = "rotated-token-999-" + value('x', 64);
+        assertTrue(service.getValues().contains(latest));
+        assertFalse(service.getValues().contains("rotated-token-0-" + value('x', 64)));
+    }
+
+    @Test
+    public void skipsValueLongerThanTheBound() {
+        SecretSpecMaskingService service = new SecretSpecMaskingService();
+        service.register(List.of("secretvalue"));
+
+        service.register(List.of(value('z', LIMIT + 1)));
+
+        assertEquals(List.of("secretvalue"), service.getValues());
+    }
+
+    private static String value(char c, int length) {
+        return String.valueOf(c).repeat(length);
+    }
+}
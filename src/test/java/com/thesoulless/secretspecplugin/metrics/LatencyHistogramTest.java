@@ -0,0 +1,91 @@
+package com.thesoulless.secretspecplugin.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMicros());
+        assertEquals(0, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(5));
+
+        assertEquals(5, histogram.getPercentileMicros(50));
+        assertEquals(5, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50_500, histogram.getMeanMicros());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertWithinBucketError(50_000, histogram.getPercentileMicros(50));
+        assertWithinBucketError(90_000, histogram.getPercentileMicros(90));
+        // Never above the largest recorded value
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void valuesBeyondTheRangeLandInTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(Long.MAX_VALUE);
+
+        long p50 = histogram.getPercentileMicros(50);
+        assertTrue(String.valueOf(p50), p50 >= 1L << 40 && p50 <= histogram.getMaxMicros());
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-1);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(3));
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void recordingUpdatesLastUsed() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long created = histogram.getLastUpdatedNanos();
+        Thread.sleep(5);
+
+        histogram.recordNanos(1);
+
+        assertTrue(histogram.getLastUpdatedNanos() > created);
+    }
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        // Upper bound of a bucket an eighth of its power of two wide
+        assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.util.execution.ParametersListUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the agent protocol against a stub agent script configured through the registry
+ */
+public class SecretSpecAgentServiceTest extends BasePlatformTestCase {
+
+    // Answers every request according to its first argument; the working directory field is echoed back
+    private static final String STUB_AGENT = String.join("\n",
+            "mode=\"$1\"",
+            "while IFS=\"$(printf '\\t')\" read -r verb dir rest; do",
+            "  case \"$mode\" in",
+            "    ok) printf 'OK 1\\n%s\\t%s\\n' \"$2\" \"$dir\" ;;",
+            "    error) printf 'ERR %s\\n' \"$2\" ;;",
+            "    malformed) printf 'HELLO\\n' ;;",
+            "    badfield) printf 'OK 1\\n%s\\t%s\\n' \"$2\" '!!not base64!!' ;;",
+            "    hang) sleep 60 ;;",
+            "    once) printf 'OK 1\\n%s\\t%s\\n' \"$2\" \"$(printf '%s' $$ | base64)\"; exit 0 ;;",
+            "  esac",
+            "done",
+            "");
+
+    private static final SecretSpecCacheKey KEY = new SecretSpecCacheKey("/work/dir", "dev", "dotenv", "hash");
+
+    private Path script;
+    private SecretSpecAgentService agent;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        script = Files.createTempFile("secretspec-stub-agent", ".sh");
+        Files.writeString(script, STUB_AGENT, StandardCharsets.UTF_8);
+        agent = new SecretSpecAgentService(getProject());
+        Disposer.register(getTestRootDisposable(), agent);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            Files.deleteIfExists(script);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testNormalReply() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("ok", encode("TOKEN"));
+
+        Map<String, String> secrets = agent.resolve(KEY);
+
+        assertEquals(Map.of("TOKEN", "/work/dir"), secrets);
+        // The agent stays up for the next request
+        assertEquals(secrets, agent.resolve(KEY));
+    }
+
+    public void testErrorReplyKeepsAgentUsable() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("error", encode("no such profile"));
+
+        // An ERR answer fails only its own request, the same agent answers the next one
+        for (int i = 0; i < 2; i++) {
+            try {
+                agent.resolve(KEY);
+                fail("ERR response must fail the request");
+            } catch (ExecutionException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("no such profile"));
+            }
+        }
+    }
+
+    public void testMalformedReply() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("malformed", "-");
+
+        try {
+            agent.resolve(KEY);
+            fail("A reply outside the protocol must fail the request");
+        } catch (ExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Unexpected agent response"));
+        }
+    }
+
+    public void testMalformedField() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("badfield", encode("TOKEN"));
+
+        try {
+            agent.resolve(KEY);
+            fail("A field that isn't Base64 must fail the request");
+        } catch (ExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Malformed agent field"));
+        }
+    }
+
+    public void testTimeout() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("hang", "-");
+        Registry.get(SecretSpecAgentService.TIMEOUT_REGISTRY_KEY).setValue(1, getTestRootDisposable());
+
+        long start = System.nanoTime();
+        try {
+            agent.resolve(KEY);
+            fail("A silent agent must time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("timed out"));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+    }
+
+    public void testRestartAfterExit() throws Exception {
+        if (!SystemInfo.isUnix) return;
+        useStub("once", encode("PID"));
+
+        String first = agent.resolve(KEY).get("PID");
+        // The first agent answered once and exited, the request is served by a new one
+        String second = agent.resolve(KEY).get("PID");
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertFalse("Expected a restarted agent", first.equals(second));
+    }
+
+    private void useStub(String mode, String argument) {
+        String command = ParametersListUtil.join(List.of("/bin/sh", script.toString(), mode, argument));
+        Registry.get(SecretSpecAgentService.COMMAND_REGISTRY_KEY).setValue(command, getTestRootDisposable());
+    }
+
+    private static String encode(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
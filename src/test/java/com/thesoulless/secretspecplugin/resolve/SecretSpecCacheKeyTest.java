@@ -0,0 +1,74 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.thesoulless.secretspecplugin.common.SecretSpecSettingsSnapshot;
+import com.thesoulless.secretspecplugin.spec.SecretSpecFileInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SecretSpecCacheKeyTest {
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("secretspec-key");
+        Files.createDirectories(root.resolve("api"));
+        Files.createDirectories(root.resolve("worker"));
+        Files.writeString(root.resolve(SecretSpecFileInfo.FILE_NAME), "[project]\nname = \"app\"\n");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(root.toFile());
+    }
+
+    @Test
+    public void launchesBelowOneSpecShareAKey() {
+        SecretSpecCacheKey api = SecretSpecCacheKey.create(root.resolve("api").toString(), settings("keyring"));
+        SecretSpecCacheKey worker = SecretSpecCacheKey.create(root.resolve("worker").toString(), settings("keyring"));
+
+        assertEquals(api, worker);
+        assertEquals(root.toString(), api.getWorkingDirectory());
+    }
+
+    @Test
+    public void relativeDotenvKeepsTheLaunchDirectory() {
+        SecretSpecCacheKey api = SecretSpecCacheKey.create(root.resolve("api").toString(), settings("dotenv:.env"));
+        SecretSpecCacheKey worker = SecretSpecCacheKey.create(root.resolve("worker").toString(), settings("dotenv:.env"));
+
+        assertNotEquals(api, worker);
+        assertEquals(root.resolve("api").toString(), api.getWorkingDirectory());
+    }
+
+    @Test
+    public void fallbackProviderGetsItsOwnDirectory() {
+        SecretSpecCacheKey key = SecretSpecCacheKey.create(root.resolve("api").toString(), settings("keyring"));
+
+        assertEquals(root.resolve("api").toString(), key.withProvider("dotenv").getWorkingDirectory());
+        assertEquals(key, key.withProvider("dotenv").withProvider("keyring"));
+    }
+
+    @Test
+    public void onlyDotenvWithoutAbsolutePathReadsRelativeFiles() {
+        assertTrue(SecretSpecCacheKey.readsRelativeFiles("dotenv"));
+        assertTrue(SecretSpecCacheKey.readsRelativeFiles("dotenv:.env.local"));
+        assertFalse(SecretSpecCacheKey.readsRelativeFiles("dotenv:/srv/app/.env"));
+        assertFalse(SecretSpecCacheKey.readsRelativeFiles("keyring"));
+        assertFalse(SecretSpecCacheKey.readsRelativeFiles("onepassword://vault"));
+    }
+
+    private static SecretSpecSettingsSnapshot settings(String provider) {
+        return SecretSpecSettingsSnapshot.DEFAULT.withEnabled(true).withProvider(provider);
+    }
+}
@@ -0,0 +1,73 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+public class SecretSpecCircuitBreakerTest extends BasePlatformTestCase {
+
+    private static final String PROVIDER = "onepassword";
+
+    private SecretSpecCircuitBreaker breaker;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        breaker = new SecretSpecCircuitBreaker();
+        Registry.get(SecretSpecCircuitBreaker.FAILURE_THRESHOLD_KEY).setValue(2, getTestRootDisposable());
+        Registry.get(SecretSpecCircuitBreaker.COOLDOWN_SECONDS_KEY).setValue(60, getTestRootDisposable());
+    }
+
+    public void testClosedCircuitLetsCallsThrough() {
+        assertTrue(breaker.tryAcquire(PROVIDER));
+        assertTrue(breaker.isAvailable(PROVIDER));
+        assertEquals(0, breaker.getRemainingCooldownSeconds(PROVIDER));
+    }
+
+    public void testOpensAfterConsecutiveFailures() {
+        assertFalse(breaker.recordFailure(PROVIDER));
+        assertTrue("The failure reaching the threshold opens the circuit", breaker.recordFailure(PROVIDER));
+
+        assertFalse(breaker.tryAcquire(PROVIDER));
+        assertFalse(breaker.isAvailable(PROVIDER));
+        long remaining = breaker.getRemainingCooldownSeconds(PROVIDER);
+        assertTrue(String.valueOf(remaining), remaining > 0 && remaining <= 60);
+        // Other providers are unaffected
+        assertTrue(breaker.tryAcquire("keyring"));
+    }
+
+    public void testSuccessResetsFailureCount() {
+        breaker.recordFailure(PROVIDER);
+        breaker.recordSuccess(PROVIDER);
+
+        assertFalse(breaker.recordFailure(PROVIDER));
+        assertTrue(breaker.tryAcquire(PROVIDER));
+    }
+
+    public void testHalfOpenCircuitLetsOneTrialThrough() throws Exception {
+        Registry.get(SecretSpecCircuitBreaker.COOLDOWN_SECONDS_KEY).setValue(1, getTestRootDisposable());
+        breaker.recordFailure(PROVIDER);
+        breaker.recordFailure(PROVIDER);
+        Thread.sleep(1100);
+
+        assertTrue(breaker.isAvailable(PROVIDER));
+        assertTrue("One trial call after the cooldown", breaker.tryAcquire(PROVIDER));
+        assertFalse("Other calls wait for the trial's outcome", breaker.tryAcquire(PROVIDER));
+
+        // A failed trial keeps the circuit open without reporting it as newly opened
+        assertFalse(breaker.recordFailure(PROVIDER));
+        assertFalse(breaker.tryAcquire(PROVIDER));
+    }
+
+    public void testSuccessfulTrialClosesCircuit() throws Exception {
+        Registry.get(SecretSpecCircuitBreaker.COOLDOWN_SECONDS_KEY).setValue(1, getTestRootDisposable());
+        breaker.recordFailure(PROVIDER);
+        breaker.recordFailure(PROVIDER);
+        Thread.sleep(1100);
+
+        assertTrue(breaker.tryAcquire(PROVIDER));
+        breaker.recordSuccess(PROVIDER);
+
+        assertTrue(breaker.tryAcquire(PROVIDER));
+        assertTrue(breaker.tryAcquire(PROVIDER));
+    }
+}
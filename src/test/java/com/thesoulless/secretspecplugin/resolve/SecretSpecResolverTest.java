@@ -0,0 +1,40 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class SecretSpecResolverTest {
+
+    private static final Map<String, String> PARENT = Map.of("HOME", "/home/dev", "PATH", "/usr/bin", "TOKEN", "old");
+
+    @Test
+    public void keepsAddedAndChangedVariables() {
+        String dump = "HOME=/home/dev\0PATH=/usr/bin\0TOKEN=new\0DATABASE_URL=postgres://db?a=b\0";
+
+        assertEquals(Map.of("TOKEN", "new", "DATABASE_URL", "postgres://db?a=b"), SecretSpecResolver.extractSecrets(dump, PARENT));
+    }
+
+    @Test
+    public void keepsMultilineValuesOfNulSeparatedDumps() {
+        String dump = "HOME=/home/dev\0CERTIFICATE=line one\nline two\0";
+
+        assertEquals(Map.of("CERTIFICATE", "line one\nline two"), SecretSpecResolver.extractSecrets(dump, PARENT));
+    }
+
+    @Test
+    public void readsLineSeparatedDumps() {
+        String dump = "HOME=/home/dev\r\nAPI_KEY=key\nEMPTY=\n";
+
+        assertEquals(Map.of("API_KEY", "key", "EMPTY", ""), SecretSpecResolver.extractSecrets(dump, PARENT));
+    }
+
+    @Test
+    public void skipsEntriesWithoutName() {
+        String dump = "=C:=C:\\\0\0garbage\0API_KEY=key\0";
+
+        assertEquals(Map.of("API_KEY", "key"), SecretSpecResolver.extractSecrets(dump, PARENT));
+    }
+}
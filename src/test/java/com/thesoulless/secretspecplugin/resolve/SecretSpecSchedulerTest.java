@@ -0,0 +1,127 @@
+package com.thesoulless.secretspecplugin.resolve;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SecretSpecSchedulerTest extends BasePlatformTestCase {
+
+    private static final String PROVIDER = "keyring";
+
+    private SecretSpecScheduler scheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        scheduler = new SecretSpecScheduler();
+        Disposer.register(getTestRootDisposable(), scheduler);
+        Registry.get(SecretSpecScheduler.MAX_CONCURRENT_KEY).setValue(1, getTestRootDisposable());
+    }
+
+    public void testReturnsResult() throws Exception {
+        SecretSpecScheduler.Job<String> job = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> "secrets");
+
+        assertEquals("secrets", job.get(5, TimeUnit.SECONDS));
+    }
+
+    public void testPropagatesFailure() throws Exception {
+        SecretSpecScheduler.Job<String> job = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> {
+            throw new ExecutionException("provider failed");
+        });
+
+        try {
+            job.get(5, TimeUnit.SECONDS);
+            fail("The work's exception must fail the job");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertInstanceOf(e.getCause(), ExecutionException.class);
+        }
+    }
+
+    public void testQueuedWorkStartsInPriorityOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> started = new CopyOnWriteArrayList<>();
+        SecretSpecScheduler.Job<String> blocking = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> {
+            release.await();
+            return "first";
+        });
+        SecretSpecScheduler.Job<String> prewarm = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.PREWARM, () -> {
+            started.add("prewarm");
+            return "prewarm";
+        });
+        SecretSpecScheduler.Job<String> refresh = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.REFRESH, () -> {
+            started.add("refresh");
+            return "refresh";
+        });
+
+        // Only one call per provider may run, the others wait in their lanes
+        assertEquals(1, scheduler.getQueueDepth(SecretSpecScheduler.Priority.PREWARM));
+        assertEquals(1, scheduler.getQueueDepth(SecretSpecScheduler.Priority.REFRESH));
+        release.countDown();
+
+        blocking.get(5, TimeUnit.SECONDS);
+        prewarm.get(5, TimeUnit.SECONDS);
+        refresh.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("refresh", "prewarm"), started);
+    }
+
+    public void testLaunchPreemptsBackgroundWork() throws Exception {
+        AtomicInteger prewarmStarts = new AtomicInteger();
+        CountDownLatch prewarmRunning = new CountDownLatch(1);
+        SecretSpecScheduler.Job<String> prewarm = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.PREWARM, () -> {
+            if (prewarmStarts.incrementAndGet() == 1) {
+                prewarmRunning.countDown();
+                while (true) {
+                    ProgressManager.checkCanceled();
+                    Thread.sleep(10);
+                }
+            }
+            return "prewarm";
+        });
+        assertTrue(prewarmRunning.await(5, TimeUnit.SECONDS));
+
+        SecretSpecScheduler.Job<String> launch = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> "launch");
+
+        assertEquals("launch", launch.get(5, TimeUnit.SECONDS));
+        // The pre-empted pre-warm is queued again and runs once the launch is done
+        assertEquals("prewarm", prewarm.get(5, TimeUnit.SECONDS));
+        assertEquals(2, prewarmStarts.get());
+    }
+
+    public void testLaunchJobCannotBeCancelled() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SecretSpecScheduler.Job<String> launch = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> {
+            release.await();
+            return "launch";
+        });
+
+        assertFalse(launch.cancel(true));
+        release.countDown();
+        assertEquals("launch", launch.get(5, TimeUnit.SECONDS));
+    }
+
+    public void testQueuedBackgroundJobCanBeCancelled() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.INTERACTIVE, () -> {
+            release.await();
+            return "launch";
+        });
+        AtomicInteger ran = new AtomicInteger();
+        SecretSpecScheduler.Job<String> prewarm = scheduler.submit(PROVIDER, SecretSpecScheduler.Priority.PREWARM, () -> {
+            ran.incrementAndGet();
+            return "prewarm";
+        });
+
+        assertTrue(prewarm.cancel(true));
+        assertEquals(0, scheduler.getQueueDepth(SecretSpecScheduler.Priority.PREWARM));
+        release.countDown();
+        assertEquals(0, ran.get());
+    }
+}
@@ -0,0 +1,70 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.thesoulless.secretspecplugin.store.SecretSpecMetadataStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SecretSpecLocatorTest extends BasePlatformTestCase {
+
+    private Path root;
+    private String app;
+    private String sub;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        root = Files.createTempDirectory("secretspec-locator");
+        Files.createDirectories(root.resolve("app/sub"));
+        Files.writeString(root.resolve(SecretSpecFileInfo.FILE_NAME), "[project]\nname = \"root\"\n");
+        app = FileUtil.toSystemIndependentName(root.resolve("app").toString());
+        sub = FileUtil.toSystemIndependentName(root.resolve("app/sub").toString());
+        refresh();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            SecretSpecMetadataStore.getInstance().removeSpecLocationsUnder(FileUtil.toSystemIndependentName(root.toString()));
+            FileUtil.delete(root.toFile());
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testUsesPersistedSpecWhileItIsTheNearest() {
+        String rootSpec = FileUtil.toSystemIndependentName(root.resolve(SecretSpecFileInfo.FILE_NAME).toString());
+        SecretSpecMetadataStore.getInstance().putSpecLocation(sub, rootSpec);
+
+        VirtualFile spec = new SecretSpecLocator().findSpec(sub);
+
+        assertNotNull(spec);
+        assertEquals(rootSpec, spec.getPath());
+    }
+
+    public void testIgnoresPersistedSpecWhenACloserOneAppeared() throws Exception {
+        SecretSpecMetadataStore.getInstance().putSpecLocation(sub,
+                FileUtil.toSystemIndependentName(root.resolve(SecretSpecFileInfo.FILE_NAME).toString()));
+        // Created while the IDE was closed, e.g. by a checkout
+        Files.writeString(root.resolve("app").resolve(SecretSpecFileInfo.FILE_NAME), "[project]\nname = \"app\"\n");
+        refresh();
+
+        VirtualFile spec = new SecretSpecLocator().findSpec(sub);
+
+        String appSpec = app + "/" + SecretSpecFileInfo.FILE_NAME;
+        assertNotNull(spec);
+        assertEquals(appSpec, spec.getPath());
+        assertEquals("The closer spec replaces the persisted one", appSpec, SecretSpecMetadataStore.getInstance().getSpecLocation(sub));
+    }
+
+    private void refresh() {
+        VirtualFile dir = LocalFileSystem.getInstance().refreshAndFindFileByPath(FileUtil.toSystemIndependentName(root.toString()));
+        assertNotNull(dir);
+        VfsUtil.markDirtyAndRefresh(false, true, true, dir);
+    }
+}
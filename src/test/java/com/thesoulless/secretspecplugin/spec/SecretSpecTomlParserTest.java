@@ -0,0 +1,79 @@
+package com.thesoulless.secretspecplugin.spec;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SecretSpecTomlParserTest {
+
+    @Test
+    public void readsProfileTables() {
+        SecretSpecFileInfo info = parse(String.join("\n",
+                "[project]",
+                "name = \"app\"",
+                "",
+                "[profiles.default]",
+                "DATABASE_URL = { description = \"Database\", required = true }",
+                "# API_TOKEN = commented out",
+                "API_KEY = { description = \"API key\" }",
+                "",
+                "[profiles.production]",
+                "SENTRY_DSN = { description = \"Sentry\" }"));
+
+        assertEquals(Set.of("default", "production"), info.getProfileNames());
+        assertEquals(List.of("DATABASE_URL", "API_KEY"), info.getSecretNames("default"));
+        // Profiles inherit the secrets of the default profile
+        assertEquals(List.of("DATABASE_URL", "API_KEY", "SENTRY_DSN"), info.getSecretNames("production"));
+    }
+
+    @Test
+    public void readsSecretSubTablesAndDottedKeys() {
+        SecretSpecFileInfo info = parse(String.join("\n",
+                "[profiles.default.DATABASE_URL]",
+                "description = \"Database\"",
+                "required = true",
+                "",
+                "profiles.staging.API_KEY = { description = \"API key\" }"));
+
+        assertEquals(List.of("DATABASE_URL"), info.getProfiles().get("default"));
+        assertEquals(List.of("API_KEY"), info.getProfiles().get("staging"));
+    }
+
+    @Test
+    public void skipsMultilineStrings() {
+        SecretSpecFileInfo info = parse(String.join("\n",
+                "[profiles.default]",
+                "CERTIFICATE = { description = \"\"\"",
+                "NOT_A_SECRET = inside the string",
+                "\"\"\" }",
+                "API_KEY = { description = \"API key\" }"));
+
+        assertEquals(List.of("CERTIFICATE", "API_KEY"), info.getProfiles().get("default"));
+    }
+
+    @Test
+    public void ignoresArraysOfTables() {
+        SecretSpecFileInfo info = parse(String.join("\n",
+                "[[profiles.default]]",
+                "API_KEY = { description = \"API key\" }"));
+
+        assertEquals(Set.of(), info.getProfileNames());
+    }
+
+    @Test
+    public void hashFollowsContent() {
+        byte[] content = "[profiles.default]".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(SecretSpecTomlParser.hash(content), SecretSpecTomlParser.hash(content.clone()));
+        assertNotEquals(SecretSpecTomlParser.hash(content), SecretSpecTomlParser.hash("[profiles.dev]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static SecretSpecFileInfo parse(String text) {
+        return SecretSpecTomlParser.parse(text.getBytes(StandardCharsets.UTF_8), text);
+    }
+}
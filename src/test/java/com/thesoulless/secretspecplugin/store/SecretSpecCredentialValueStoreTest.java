@@ -0,0 +1,114 @@
+package com.thesoulless.secretspecplugin.store;
+
+import com.intellij.credentialStore.CredentialAttributes;
+import com.intellij.credentialStore.CredentialStore;
+import com.intellij.credentialStore.Credentials;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SecretSpecCredentialValueStoreTest {
+
+    private static final SecretSpecCacheKey KEY = new SecretSpecCacheKey("/work/app", "dev", "keyring", "hash-1");
+
+    private final InMemoryCredentialStore credentials = new InMemoryCredentialStore();
+    private final SecretSpecCredentialValueStore store = new SecretSpecCredentialValueStore(credentials);
+
+    @Test
+    public void roundTripsSecretsAndResolutionTime() {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        secrets.put("DATABASE_URL", "postgres://user:p\u00e4ss@db/app");
+        secrets.put("EMPTY", "");
+        secrets.put("LARGE", "x".repeat(70_000)); // Beyond the 64K limit of modified UTF-8
+
+        store.save(KEY, secrets, 1234L);
+        SecretSpecValueStore.Stored stored = store.load(KEY);
+
+        assertNotNull(stored);
+        assertEquals(secrets, stored.getSecrets());
+        assertEquals(1234L, stored.getResolvedAt());
+    }
+
+    @Test
+    public void ignoresSecretsOfAnotherSpecVersion() {
+        store.save(KEY, Map.of("TOKEN", "secret"), 1L);
+
+        SecretSpecCacheKey changedSpec = new SecretSpecCacheKey("/work/app", "dev", "keyring", "hash-2");
+
+        assertNull(store.load(changedSpec));
+    }
+
+    @Test
+    public void keepsProfilesApart() {
+        store.save(KEY, Map.of("TOKEN", "dev-secret"), 1L);
+
+        assertNull(store.load(new SecretSpecCacheKey("/work/app", "prod", "keyring", "hash-1")));
+    }
+
+    @Test
+    public void removeDeletesTheCredential() {
+        store.save(KEY, Map.of("TOKEN", "secret"), 1L);
+
+        store.remove(KEY);
+
+        assertNull(store.load(KEY));
+        assertEquals(0, credentials.size());
+    }
+
+    @Test
+    public void discardsUnreadableCredential() {
+        store.save(KEY, Map.of("TOKEN", "secret"), 1L);
+        credentials.replaceAllPasswords("not base64!");
+
+        assertNull(store.load(KEY));
+    }
+
+    /**
+     * Keeps credentials in a map keyed by service and user name
+     */
+    private static final class InMemoryCredentialStore implements CredentialStore {
+        private final Map<String, Credentials> credentials = new HashMap<>();
+
+        @Override
+        public @Nullable Credentials get(@NotNull CredentialAttributes attributes) {
+            return credentials.get(attributes.getServiceName());
+        }
+
+        @Override
+        public void set(@NotNull CredentialAttributes attributes, @Nullable Credentials value) {
+            if (value == null) {
+                credentials.remove(attributes.getServiceName());
+            } else {
+                credentials.put(attributes.getServiceName(), value);
+            }
+        }
+
+        @Override
+        public @Nullable String getPassword(@NotNull CredentialAttributes attributes) {
+            Credentials stored = get(attributes);
+            return stored != null ? stored.getPasswordAsString() : null;
+        }
+
+        @Override
+        public void setPassword(@NotNull CredentialAttributes attributes, @Nullable String password) {
+            set(attributes, password != null ? new Credentials(attributes.getUserName(), password) : null);
+        }
+
+        int size() {
+            return credentials.size();
+        }
+
+        void replaceAllPasswords(@NotNull String password) {
+            credentials.replaceAll((service, stored) -> new Credentials(stored.getUserName(), password));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.thesoulless.secretspecplugin.store;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.thesoulless.secretspecplugin.resolve.SecretSpecCacheKey;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+public class SecretSpecMetadataStoreTest extends BasePlatformTestCase {
+
+    private static final SecretSpecCacheKey KEY = new SecretSpecCacheKey("/work/app", "dev", "keyring", "hash-1");
+
+    private Path directory;
+    private Path file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = Files.createTempDirectory("secretspec-metadata");
+        file = directory.resolve("metadata.bin");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            FileUtil.delete(directory.toFile());
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testRoundTrip() {
+        SecretSpecMetadataStore written = new SecretSpecMetadataStore(file);
+        written.putExecutablePath("/usr/bin:/bin", "/usr/bin/secretspec");
+        written.putProbe("/usr/bin/secretspec", new SecretSpecMetadataStore.Probe(42L, "0.3.1", Set.of("run", "get"), Set.of("--file")));
+        written.putSpecLocation("/work/app/sub", "/work/app/secretspec.toml");
+        written.addValueKey(KEY);
+        written.dispose(); // Saves at once instead of after the delay
+
+        SecretSpecMetadataStore read = new SecretSpecMetadataStore(file);
+
+        assertEquals("/usr/bin/secretspec", read.getExecutablePath("/usr/bin:/bin"));
+        assertNull("Another PATH needs another lookup", read.getExecutablePath("/opt/bin"));
+        SecretSpecMetadataStore.Probe probe = read.getProbe("/usr/bin/secretspec", 42L);
+        assertNotNull(probe);
+        assertEquals("0.3.1", probe.getVersion());
+        assertEquals(Set.of("--file"), probe.getRunFlags());
+        assertNull("A changed binary must be probed again", read.getProbe("/usr/bin/secretspec", 43L));
+        assertEquals("/work/app/secretspec.toml", read.getSpecLocation("/work/app/sub"));
+        assertEquals(List.of(KEY), read.removeValueKeys(key -> true));
+    }
+
+    public void testDiscardsFileOfAnotherVersion() throws Exception {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x53535043); // Same magic number
+            out.writeInt(Integer.MAX_VALUE); // Unknown version
+            out.writeBoolean(true);
+            out.writeUTF("/usr/bin:/bin");
+            out.writeUTF("/usr/bin/secretspec");
+        }
+
+        SecretSpecMetadataStore store = new SecretSpecMetadataStore(file);
+
+        assertNull(store.getExecutablePath("/usr/bin:/bin"));
+        assertEquals(List.of(), store.removeValueKeys(key -> true));
+
+        // The next save replaces the file with the current version
+        store.putSpecLocation("/work/app", "/work/app/secretspec.toml");
+        store.dispose();
+        assertEquals("/work/app/secretspec.toml", new SecretSpecMetadataStore(file).getSpecLocation("/work/app"));
+    }
+
+    public void testDiscardsTruncatedFile() throws Exception {
+        SecretSpecMetadataStore written = new SecretSpecMetadataStore(file);
+        written.putExecutablePath("/usr/bin:/bin", "/usr/bin/secretspec");
+        written.addValueKey(KEY);
+        written.dispose();
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+
+        SecretSpecMetadataStore read = new SecretSpecMetadataStore(file);
+
+        assertNull(read.getExecutablePath("/usr/bin:/bin"));
+        assertEquals(List.of(), read.removeValueKeys(key -> true));
+    }
+
+    public void testMissingFileIsEmpty() {
+        SecretSpecMetadataStore store = new SecretSpecMetadataStore(directory.resolve("absent.bin"));
+
+        assertNull(store.getSpecLocation("/work/app"));
+    }
+}